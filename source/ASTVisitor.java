@@ -0,0 +1,28 @@
+/**
+ * ASTVisitor
+ *
+ * A pass over the AST that ASTnode.walk drives: enter is called for every
+ * node before its kids and exit after them, in the order the nodes appear in
+ * the source. A visitor that cares about some kinds of node only checks for
+ * them (node instanceof IdNode, say) and lets the others through.
+ *
+ * Since walk does not recurse, a visitor that needs to know where it is in
+ * the tree (how deep, in which function) keeps track of that itself in enter
+ * and exit.
+ */
+interface ASTVisitor {
+
+    /**
+     * Called when the walk reaches the given node. Returns false if the
+     * node's kids are to be skipped.
+     */
+    default boolean enter(ASTnode node) {
+        return true;
+    }
+
+    /**
+     * Called when the walk is done with the given node and its kids.
+     */
+    default void exit(ASTnode node) {
+    }
+}
@@ -0,0 +1,647 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java_cup.runtime.*;
+import project.*;
+
+/**
+ * BatchCompiler
+ *
+ * Runs Wumbo programs through the same stages the CompilerVisualizer steps
+ * through (lex, parse, analyze, name analysis and type check, code
+ * generation) without creating a window, so it can be used from scripts.
+ *
+ * Usage:
+ *     java -cp ./deps:. BatchCompiler [-o outdir] [-t] [-j N] [-scale]
+ *                                     [-stream] [-pparse]
+ *                                     [file | dir | @manifest ...]
+ *
+ * Each file foo.wumbo is compiled to foo.s (in outdir if one is given). A
+ * directory stands for every .wumbo file below it and @manifest for every
+ * file listed (one per line) in the manifest. With no files, or with "-",
+ * the program is read from standard input and the assembly is written to
+ * standard output. Errors are printed to standard error.
+ *
+ * The files are compiled on a ForkJoinPool with N threads (the number of
+ * processors by default), but the .s files and errors are always written
+ * in the order the files were given. No more than 2N files are compiled
+ * ahead of the one being written, so the assembly held at a time does not
+ * grow with the number of files. -t prints the time spent in every
+ * stage for every file; a summary with the total per stage is always
+ * printed at the end. The check stage covers all of semantic analysis
+ * (ProgramNode.check does it in one walk). -scale compiles the files again
+ * with 1, 2, 4, ... up to N threads and prints the throughput and speedup
+ * of each run.
+ *
+ * -stream compiles each declaration as soon as it has been parsed (see
+ * compileStreaming), so a big file never has all of its AST in memory.
+ * It runs analyze, nameAnalysis and typeCheck on each declaration, which
+ * recurse into nested statements, so unlike check (see WorkStack) it can
+ * run out of stack on statements nested thousands deep.
+ * -pparse parses each big file on several threads (see ParallelParser);
+ * it is not used with -stream.
+ */
+public class BatchCompiler {
+
+    // the stages of the compiler, in the order they run
+    static final int LEX = 0;
+    static final int PARSE = 1;
+    static final int CHECK = 2;
+    static final int CODEGEN = 3;
+    static final String[] STAGE_NAMES = {"lex", "parse", "check", "codegen"};
+
+    // set by -stream: compile with compileStreaming instead of compile
+    static boolean streaming = false;
+
+    // set by -pparse: compile parses with ParallelParser
+    static boolean parallelParse = false;
+
+    // one parser per thread, reset onto every program the thread compiles
+    private static final ThreadLocal<parser> PARSERS = new ThreadLocal<parser>() {
+        protected parser initialValue() {
+            parser p = new parser();
+            p.arrayLists = true;
+            return p;
+        }
+    };
+
+    /**
+     * The outcome of compiling one program.
+     */
+    static class Result {
+        String name;
+        CodeBuffer assembly;        // null if compilation stopped early
+        List<String> errors = new ArrayList<String>();
+        long[] stageNanos = new long[STAGE_NAMES.length];
+
+        boolean ok() {
+            return assembly != null;
+        }
+    }
+
+    /**
+     * Compiles the program read from the given reader. Compilation stops
+     * after the first stage that reports an error, the same way the
+     * visualizer refuses to move to the next panel. Every call uses its own
+     * CompilationContext, so calls on different threads do not interfere.
+     */
+    public static Result compile(String name, Reader in) {
+        Result res = new Result();
+        res.name = name;
+        CompilationContext ctx = new CompilationContext();
+        CompilationContext previous = ctx.bind();
+
+        try {
+            long start = System.nanoTime();
+            TokenBuffer tokens = new TokenBuffer();
+            new Yylex(in).scanInto(tokens);
+            start = mark(res, LEX, start);
+            if (ctx.getErr()) {
+                return finish(res, ctx);
+            }
+
+            ProgramNode astRoot;
+            try {
+                if (parallelParse) {
+                    astRoot = ParallelParser.parse(tokens, true);
+                } else {
+                    parser p = PARSERS.get();
+                    p.reset(tokens.cursor());
+                    astRoot = (ProgramNode)p.parse().value;
+                }
+            } catch (Exception e) {
+                // syntax errors have already been reported by the parser
+                mark(res, PARSE, start);
+                return finish(res, ctx);
+            }
+            start = mark(res, PARSE, start);
+            if (ctx.getErr()) {
+                return finish(res, ctx);
+            }
+
+            // analyze, name analysis and the type check in one walk
+            astRoot.check();
+            start = mark(res, CHECK, start);
+            if (ctx.getErr()) {
+                return finish(res, ctx);
+            }
+
+            CodeBuffer code = new CodeBuffer();
+            PrintWriter out = Codegen.setOutput(code);
+            astRoot.codeGen(out);
+            out.flush();
+            mark(res, CODEGEN, start);
+            res.assembly = code;
+        } catch (IOException ie) {
+            res.errors.add("Unable to read " + name + ": " + ie.getMessage());
+        } catch (RuntimeException | StackOverflowError re) {
+            // a program nested too deeply for a pass is this file's failure only
+            res.errors.add("Internal compiler error in " + name + ": " + re);
+        } finally {
+            CompilationContext.restore(previous);
+        }
+        return finish(res, ctx);
+    }
+
+    /**
+     * Compiles the program read from the given reader like compile(), but
+     * every top-level declaration goes through analysis, name analysis, type
+     * checking and code generation as soon as it has been parsed, and is
+     * dropped after that. Only the tokens and one declaration are held at a
+     * time, and code is generated while the rest of the file is parsed.
+     *
+     * The messages and the assembly are the same as compile()'s. Each
+     * stage's messages are kept apart and put in stage order at the end, and
+     * the ones from stages compile() would not have reached (because an
+     * earlier stage reported an error in a later declaration) are dropped.
+     */
+    public static Result compileStreaming(String name, Reader in) {
+        Result res = new Result();
+        res.name = name;
+        CompilationContext ctx = new CompilationContext();
+        CompilationContext previous = ctx.bind();
+        DeclStream stream = new DeclStream(res, ctx);
+
+        try {
+            long start = System.nanoTime();
+            TokenBuffer tokens = new TokenBuffer();
+            new Yylex(in).scanInto(tokens);
+            start = mark(res, LEX, start);
+            if (ctx.getErr()) {
+                return finish(res, ctx);
+            }
+            stream.take(DeclStream.LEX);
+
+            parser p = PARSERS.get();
+            p.reset(tokens.cursor());
+            p.declConsumer = stream;
+            boolean parsed = false;
+            try {
+                p.parse();
+                parsed = true;
+            } catch (Exception e) {
+                // syntax errors have already been reported by the parser
+            } finally {
+                p.declConsumer = null;
+            }
+            stream.take(DeclStream.PARSE);
+            res.stageNanos[PARSE] = System.nanoTime() - start - stream.nanos;
+            res.assembly = stream.finish(parsed);
+        } catch (IOException ie) {
+            res.errors.add("Unable to read " + name + ": " + ie.getMessage());
+        } catch (RuntimeException | StackOverflowError re) {
+            // a program nested too deeply for a pass is this file's failure only
+            res.errors.add("Internal compiler error in " + name + ": " + re);
+        } finally {
+            CompilationContext.restore(previous);
+        }
+        return finish(res, ctx);
+    }
+
+    /**
+     * Takes the declarations the parser hands over in compileStreaming and
+     * runs the later stages on each of them.
+     */
+    static class DeclStream implements java.util.function.Consumer<DeclNode> {
+        // the stages in the order compile() runs them over the whole
+        // program (name analysis is kept apart from the type check, since
+        // compile() does all of it before any type checking)
+        static final int LEX = 0;
+        static final int PARSE = 1;
+        static final int ANALYZE = 2;
+        static final int NAMES = 3;
+        static final int TYPES = 4;
+        static final int CODEGEN = 5;
+
+        private final Result res;
+        private final CompilationContext ctx;
+
+        // the messages each stage reported, and whether any was an error
+        private final List<List<String>> messages = new ArrayList<List<String>>();
+        private final boolean[] failed = new boolean[CODEGEN + 1];
+
+        // the first stage that threw, and what it threw; that stage and the
+        // ones after it are not run again
+        private int crashed = CODEGEN + 1;
+        private RuntimeException crash = null;
+
+        private SymTable analyzeTable = new SymTable();
+        private SymTable nameTable = new SymTable();
+        private CodeBuffer code = new CodeBuffer();
+        private PrintWriter out = Codegen.setOutput(code);
+        private boolean sawMain = false;
+
+        // the time spent in accept, which is not parse time
+        long nanos = 0;
+
+        DeclStream(Result res, CompilationContext ctx) {
+            this.res = res;
+            this.ctx = ctx;
+            for (int s = LEX; s <= CODEGEN; s++) {
+                messages.add(new ArrayList<String>());
+            }
+        }
+
+        /**
+         * Moves the messages the context has collected into the given
+         * stage's list.
+         */
+        void take(int stage) {
+            messages.get(stage).addAll(ctx.getErrors());
+            failed[stage] |= ctx.getErr();
+            ctx.clearErrors();
+        }
+
+        /**
+         * Returns true if compile() would run the given stage, as far as
+         * the declarations seen so far tell.
+         */
+        private boolean runs(int stage) {
+            if (stage >= crashed) {
+                return false;
+            }
+            // the type check runs even if name analysis failed
+            int last = stage == TYPES ? ANALYZE : stage - 1;
+            for (int s = LEX; s <= last; s++) {
+                if (failed[s]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public void accept(DeclNode decl) {
+            long start = System.nanoTime();
+            take(PARSE);
+            int stage = ANALYZE;
+            try {
+                if (runs(ANALYZE)) {
+                    analyzeTable = decl.analyze(analyzeTable);
+                    take(ANALYZE);
+                }
+                stage = NAMES;
+                if (runs(NAMES)) {
+                    if (decl instanceof VarDeclNode) {
+                        ((VarDeclNode)decl).nameAnalysis(nameTable, nameTable);
+                    } else {
+                        decl.nameAnalysis(nameTable);
+                    }
+                    take(NAMES);
+                }
+                stage = TYPES;
+                if (runs(TYPES)) {
+                    decl.typeCheck();
+                    take(TYPES);
+                    if (decl instanceof FnDeclNode
+                        && ((FnDeclNode)decl).getId().id() == NamePool.MAIN) {
+                        sawMain = true;
+                    }
+                }
+                start = mark(BatchCompiler.CHECK, start);
+                stage = CODEGEN;
+                if (runs(CODEGEN)) {
+                    Codegen.run(() -> decl.codeGen(out));
+                    take(CODEGEN);
+                }
+                mark(BatchCompiler.CODEGEN, start);
+            } catch (CancellationException ce) {
+                throw ce;
+            } catch (RuntimeException re) {
+                // compile() would have stopped here, unless an earlier stage
+                // fails in a later declaration
+                take(stage);
+                crashed = stage;
+                crash = re;
+                mark(stage == CODEGEN ? BatchCompiler.CODEGEN : BatchCompiler.CHECK, start);
+            }
+        }
+
+        // adds the time since start to the given stage of compile()
+        private long mark(int stage, long start) {
+            long now = System.nanoTime();
+            res.stageNanos[stage] += now - start;
+            nanos += now - start;
+            return now;
+        }
+
+        /**
+         * Puts the messages back into the context in the order compile()
+         * reports them, up to the first stage that failed, and returns the
+         * generated code, or null if a stage failed. parsed is false if the
+         * parser stopped before the end of the program.
+         */
+        CodeBuffer finish(boolean parsed) {
+            failed[PARSE] |= !parsed;
+            if (runs(TYPES)) {
+                if (!sawMain) {
+                    ErrMsg.fatal(0,0,"No main function");
+                }
+                take(TYPES);
+            }
+            for (int s = LEX; s <= CODEGEN; s++) {
+                ctx.replay(messages.get(s), failed[s]);
+                if (s == crashed) {
+                    throw crash;
+                }
+                if (ctx.getErr() && s != NAMES) {
+                    return null;
+                }
+            }
+            out.flush();
+            return code;
+        }
+    }
+
+    private static long mark(Result res, int stage, long start) {
+        long now = System.nanoTime();
+        res.stageNanos[stage] = now - start;
+        return now;
+    }
+
+    private static Result finish(Result res, CompilationContext ctx) {
+        res.errors.addAll(0, ctx.getErrors());
+        return res;
+    }
+
+    /**
+     * Returns the name of the assembly file for the given source file.
+     */
+    static File outputFile(File src, File outDir) {
+        String name = src.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        File dir = outDir != null ? outDir : src.getAbsoluteFile().getParentFile();
+        return new File(dir, name + ".s");
+    }
+
+    /**
+     * Adds the files named by one command line argument to the list: a
+     * directory adds every .wumbo file below it (sorted by path), @manifest
+     * adds every non-blank line of the manifest, anything else is a file.
+     */
+    static void collectInputs(String arg, List<String> inputs) throws IOException {
+        if (arg.startsWith("@")) {
+            try (BufferedReader in = new BufferedReader(new FileReader(arg.substring(1)))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        collectInputs(line, inputs);
+                    }
+                }
+            }
+        } else if (new File(arg).isDirectory()) {
+            List<String> found = new ArrayList<String>();
+            findSources(new File(arg), found);
+            Collections.sort(found);
+            inputs.addAll(found);
+        } else {
+            inputs.add(arg);
+        }
+    }
+
+    private static void findSources(File dir, List<String> found) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            if (f.isDirectory()) {
+                findSources(f, found);
+            } else if (f.getName().endsWith(".wumbo")) {
+                found.add(f.getPath());
+            }
+        }
+    }
+
+    /**
+     * Reads and compiles one input. Standard input must already have been
+     * read into stdinText, since only one task could read it. A big file is
+     * read through a MappedSourceReader, so it is never copied into the heap.
+     */
+    static Result compileInput(String input, String stdinText) {
+        if (input.equals("-")) {
+            Reader in = new StringReader(stdinText);
+            return streaming ? compileStreaming("<stdin>", in) : compile("<stdin>", in);
+        }
+        try (Reader in = MappedSourceReader.open(new File(input).toPath())) {
+            return streaming ? compileStreaming(input, in) : compile(input, in);
+        } catch (IOException ie) {
+            Result res = new Result();
+            res.name = input;
+            res.errors.add("Unable to read " + input + ": " + ie.getMessage());
+            return res;
+        }
+    }
+
+    /**
+     * Compiles the inputs on the given pool and returns their results in
+     * the same order as the inputs, whatever order the compilations finish
+     * in. At most ahead compilations are started before the oldest one's
+     * result is taken, and nothing keeps a result once next() has returned
+     * it, so finished results (with their assembly) cannot pile up behind a
+     * slow file.
+     */
+    static Iterator<Result> compileAll(List<String> inputs, String stdinText,
+                                       ExecutorService pool, int ahead) {
+        ArrayDeque<Future<Result>> pending = new ArrayDeque<Future<Result>>();
+        Iterator<String> todo = inputs.iterator();
+        return new Iterator<Result>() {
+            public boolean hasNext() {
+                return !pending.isEmpty() || todo.hasNext();
+            }
+
+            public Result next() {
+                while (pending.size() < ahead && todo.hasNext()) {
+                    String input = todo.next();
+                    pending.add(pool.submit(() -> compileInput(input, stdinText)));
+                }
+                if (pending.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                return join(pending.poll());
+            }
+        };
+    }
+
+    static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    private static String readAll(Reader in) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buf = new char[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            text.append(buf, 0, n);
+        }
+        return text.toString();
+    }
+
+    private static void usage() {
+        System.err.println("usage: java BatchCompiler [-o outdir] [-t] [-j N] [-scale] [-stream] [-pparse] "
+                           + "[file | dir | @manifest ...]");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException {
+        File outDir = null;
+        boolean timings = false;
+        boolean scale = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> inputs = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o")) {
+                if (++i == args.length) {
+                    usage();
+                }
+                outDir = new File(args[i]);
+            } else if (args[i].equals("-t")) {
+                timings = true;
+            } else if (args[i].equals("-j")) {
+                if (++i == args.length) {
+                    usage();
+                }
+                try {
+                    threads = Integer.parseInt(args[i]);
+                } catch (NumberFormatException nfe) {
+                    usage();
+                }
+                if (threads < 1) {
+                    usage();
+                }
+            } else if (args[i].equals("-scale")) {
+                scale = true;
+            } else if (args[i].equals("-stream")) {
+                streaming = true;
+            } else if (args[i].equals("-pparse")) {
+                parallelParse = true;
+            } else if (args[i].startsWith("-") && !args[i].equals("-")) {
+                usage();
+            } else {
+                collectInputs(args[i], inputs);
+            }
+        }
+        if (inputs.isEmpty()) {
+            inputs.add("-");
+        }
+        if (outDir != null) {
+            outDir.mkdirs();
+        }
+        String stdinText = inputs.contains("-") ? readAll(new InputStreamReader(System.in)) : null;
+
+        long[] totals = new long[STAGE_NAMES.length];
+        int failed = 0;
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Iterator<Result> results = compileAll(inputs, stdinText, pool, 2 * threads);
+
+        for (int i = 0; i < inputs.size(); i++) {
+            String input = inputs.get(i);
+            Result res = results.next();
+            if (res.ok()) {
+                if (input.equals("-")) {
+                    // UTF-8, as Codegen.fileSink writes the files
+                    Writer w = new OutputStreamWriter(System.out, java.nio.charset.StandardCharsets.UTF_8);
+                    res.assembly.writeTo(w);
+                    w.flush();
+                } else {
+                    File out = outputFile(new File(input), outDir);
+                    try (Writer w = Codegen.fileSink(out.toPath())) {
+                        res.assembly.writeTo(w);
+                    }
+                }
+            }
+
+            for (String err : res.errors) {
+                System.err.println(res.name + ": " + err);
+            }
+            if (!res.ok()) {
+                failed++;
+            }
+            for (int s = 0; s < totals.length; s++) {
+                totals[s] += res.stageNanos[s];
+            }
+            if (timings) {
+                StringBuilder line = new StringBuilder(res.name);
+                for (int s = 0; s < STAGE_NAMES.length; s++) {
+                    line.append(" ").append(STAGE_NAMES[s]).append("=")
+                        .append(millis(res.stageNanos[s])).append("ms");
+                }
+                System.err.println(line);
+            }
+        }
+        pool.shutdown();
+
+        long elapsed = System.nanoTime() - start;
+        StringBuilder summary = new StringBuilder();
+        summary.append(inputs.size()).append(" file(s), ").append(failed)
+               .append(" with errors, ").append(millis(elapsed)).append("ms on ")
+               .append(threads).append(" thread(s)");
+        summary.append(String.format(" (%.1f files/sec)", inputs.size() * 1e9 / elapsed));
+        summary.append("\n  stage times are summed over all threads");
+        for (int s = 0; s < STAGE_NAMES.length; s++) {
+            summary.append("\n  ").append(STAGE_NAMES[s]).append(": ")
+                   .append(millis(totals[s])).append("ms");
+        }
+        System.err.println(summary);
+
+        if (scale) {
+            printScaling(inputs, stdinText, threads);
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Compiles the inputs again with 1, 2, 4, ... up to maxThreads threads
+     * (nothing is written) and prints how the throughput scales. The first
+     * pass over the inputs warms up the JIT so that the one-thread run is
+     * not charged for it.
+     */
+    static void printScaling(List<String> inputs, String stdinText, int maxThreads) {
+        List<Integer> counts = new ArrayList<Integer>();
+        for (int n = 1; n < maxThreads; n *= 2) {
+            counts.add(n);
+        }
+        counts.add(maxThreads);
+
+        runWith(inputs, stdinText, maxThreads);
+        System.err.println("threads  files/sec  speedup  per thread");
+        double base = 0;
+        for (int n : counts) {
+            long elapsed = runWith(inputs, stdinText, n);
+            double rate = inputs.size() * 1e9 / elapsed;
+            if (n == 1) {
+                base = rate;
+            }
+            System.err.println(String.format("%7d  %9.1f  %6.2fx  %9.2fx",
+                                             n, rate, rate / base, rate / base / n));
+        }
+    }
+
+    private static long runWith(List<String> inputs, String stdinText, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        Iterator<Result> results = compileAll(inputs, stdinText, pool, 2 * threads);
+        while (results.hasNext()) {
+            results.next();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return elapsed;
+    }
+
+    private static Result join(Future<Result> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ie);
+        } catch (ExecutionException ee) {
+            throw new RuntimeException(ee.getCause());
+        }
+    }
+}
@@ -0,0 +1,410 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.*;
+import java_cup.runtime.*;
+import org.abego.treelayout.TreeLayout;
+import org.abego.treelayout.demo.TextInBox;
+import org.abego.treelayout.demo.TextInBoxNodeExtentProvider;
+import org.abego.treelayout.demo.swing.TextInBoxTreePane;
+import org.abego.treelayout.util.*;
+import project.*;
+
+/**
+ * Benchmarks
+ *
+ * Times every stage of the compiler, and the tree view of the visualizer,
+ * over small, medium and huge programs, and reports how long one run of a
+ * stage takes and how much it allocates, as a baseline to measure changes
+ * against.
+ *
+ * Usage:
+ *     java -cp ./deps:. Benchmarks [-w N] [-n N] [-stage name ...]
+ *                                  [-size small|medium|huge ...] [file ...]
+ *
+ * The stages are lex (Yylex.next_token until EOF), parse (parser.parse over
+ * tokens scanned beforehand), reparse (the same, but with one parser reset
+ * for every run instead of a new one), check (ProgramNode.check, which does
+ * analyze, nameAnalysis and typeCheck in one walk), walk (ASTnode.walk with
+ * a visitor that counts the nodes), codegen (ProgramNode.codeGen into a
+ * CodeBuffer), layout (building the tree the visualizer shows and its
+ * TreeLayout) and paint (TextInBoxTreePane.paint into an offscreen image).
+ * Everything a stage needs is made before its clock starts, and each run
+ * gets a fresh CompilationContext.
+ *
+ * The programs are made up by program() unless files are given. Each stage
+ * is run -w times (3 by default) to warm up the JIT, then at least -n times
+ * (5 by default) and for at least a second. The time is wall-clock; the
+ * allocation is what ThreadMXBean counts for the benchmark thread.
+ */
+public class Benchmarks {
+
+    static final String[] STAGES = {"lex", "parse", "reparse", "check", "walk", "codegen", "layout", "paint"};
+    static final String[] SIZES = {"small", "medium", "huge"};
+    static final int[] SIZE_FUNCTIONS = {5, 200, 5000};
+
+    // how long the measured runs of one benchmark should take at least
+    static final long MIN_NANOS = 1000000000L;
+
+    // the size of the image the tree is painted into
+    static final int PAINT_WIDTH = 1600;
+    static final int PAINT_HEIGHT = 1200;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * One stage over one program. prepare() makes everything a run needs,
+     * off the clock; run() is the part that is timed.
+     */
+    static abstract class Bench {
+        final String text;
+        CompilationContext ctx;
+
+        Bench(String text) {
+            this.text = text;
+        }
+
+        void prepare() throws Exception {
+            ctx = new CompilationContext();
+        }
+
+        abstract void run() throws Exception;
+
+        TokenBuffer scan() throws IOException {
+            TokenBuffer tokens = new TokenBuffer();
+            new Yylex(new StringReader(text)).scanInto(tokens);
+            return tokens;
+        }
+
+        ProgramNode parse(TokenBuffer tokens) throws Exception {
+            return (ProgramNode) new parser(tokens.cursor()).parse().value;
+        }
+
+        ProgramNode check(ProgramNode root) {
+            root.check();
+            return root;
+        }
+
+        TreeLayout<TextInBox> layout(ProgramNode root) {
+            TextInBox top = new TextInBox("program", 55, 20);
+            DefaultTreeForTreeLayout<TextInBox> tree = new DefaultTreeForTreeLayout<TextInBox>(top);
+            root.buildTree(tree, top);
+            return new TreeLayout<TextInBox>(tree, new TextInBoxNodeExtentProvider(),
+                                             new DefaultConfiguration<TextInBox>(20, 10));
+        }
+    }
+
+    static Bench make(String stage, String text) {
+        switch (stage) {
+        case "lex":
+            return new Bench(text) {
+                Yylex scanner;
+
+                void prepare() throws Exception {
+                    super.prepare();
+                    scanner = new Yylex(new StringReader(text), ctx);
+                }
+
+                void run() throws Exception {
+                    while (scanner.next_token().sym != sym.EOF) {
+                    }
+                }
+            };
+        case "parse":
+            return new Bench(text) {
+                TokenBuffer tokens;
+
+                void prepare() throws Exception {
+                    super.prepare();
+                    tokens = scan();
+                }
+
+                void run() throws Exception {
+                    parse(tokens);
+                }
+            };
+        case "reparse":
+            return new Bench(text) {
+                TokenBuffer tokens;
+                parser p = new parser();
+
+                void prepare() throws Exception {
+                    super.prepare();
+                    tokens = scan();
+                    p.reset(tokens.cursor());
+                }
+
+                void run() throws Exception {
+                    p.parse();
+                }
+            };
+        case "check":
+            return new Bench(text) {
+                ProgramNode root;
+
+                void prepare() throws Exception {
+                    super.prepare();
+                    root = parse(scan());
+                }
+
+                void run() {
+                    check(root);
+                }
+            };
+        case "walk":
+            return new Bench(text) {
+                ProgramNode root;
+                long nodes;
+
+                void prepare() throws Exception {
+                    super.prepare();
+                    if (root == null) {
+                        root = parse(scan());
+                    }
+                }
+
+                void run() {
+                    root.walk(new ASTVisitor() {
+                        public boolean enter(ASTnode node) {
+                            nodes++;
+                            return true;
+                        }
+                    });
+                }
+            };
+        case "codegen":
+            return new Bench(text) {
+                ProgramNode root;
+                CodeBuffer code = new CodeBuffer();
+
+                void prepare() throws Exception {
+                    super.prepare();
+                    root = check(parse(scan()));
+                    code.reset();
+                }
+
+                void run() {
+                    PrintWriter out = Codegen.setOutput(code);
+                    root.codeGen(out);
+                    out.flush();
+                }
+            };
+        case "layout":
+            return new Bench(text) {
+                ProgramNode root;
+
+                void prepare() throws Exception {
+                    super.prepare();
+                    if (root == null) {
+                        root = parse(scan());
+                    }
+                }
+
+                void run() {
+                    layout(root);
+                }
+            };
+        case "paint":
+            return new Bench(text) {
+                TextInBoxTreePane pane;
+                BufferedImage image = new BufferedImage(PAINT_WIDTH, PAINT_HEIGHT,
+                                                        BufferedImage.TYPE_INT_RGB);
+
+                void prepare() throws Exception {
+                    super.prepare();
+                    if (pane == null) {
+                        pane = new TextInBoxTreePane(layout(parse(scan())));
+                        pane.setSize(pane.getPreferredSize());
+                        // it is never shown, so it has no font to inherit
+                        pane.setFont(new java.awt.Font(java.awt.Font.SANS_SERIF, 0, 12));
+                    }
+                }
+
+                void run() {
+                    Graphics2D g = image.createGraphics();
+                    try {
+                        g.setClip(0, 0, PAINT_WIDTH, PAINT_HEIGHT);
+                        pane.paint(g);
+                    } finally {
+                        g.dispose();
+                    }
+                }
+            };
+        default:
+            throw new IllegalArgumentException("no stage " + stage);
+        }
+    }
+
+    /**
+     * Returns a program with the given number of functions, each with a
+     * loop, an if and some arithmetic, plus a main that calls some of them.
+     * Every stage accepts it without errors.
+     */
+    static String program(int functions) {
+        StringBuilder b = new StringBuilder();
+        b.append("int g;\nbool flag;\n");
+        for (int f = 0; f < functions; f++) {
+            b.append("int f").append(f).append("(int a, int b) {\n");
+            b.append("    int i;\n    int t;\n    i = 0;\n    t = a;\n");
+            b.append("    while (i < b) {\n");
+            b.append("        t = t + i * ").append(f % 97).append(";\n");
+            b.append("        if (t > 1000) {\n            t = t - 1000;\n");
+            b.append("        } else {\n            g = g + 1;\n        }\n");
+            b.append("        i++;\n    }\n    return t;\n}\n\n");
+        }
+        b.append("int main() {\n    int total;\n    total = 0;\n");
+        for (int f = 0; f < functions; f += Math.max(1, functions / 20)) {
+            b.append("    total = total + f").append(f).append("(total, ").append(f % 10).append(");\n");
+        }
+        b.append("    flag = !(total == 285) || false;\n");
+        b.append("    cout << total;\n    cout << \"\\n\";\n    return total;\n}\n");
+        return b.toString();
+    }
+
+    /**
+     * What the measured runs of one benchmark came to.
+     */
+    static class Result {
+        int runs;
+        long minNanos;
+        long medianNanos;
+        long totalNanos;
+        long totalBytes;
+
+        double bytesPerRun() {
+            return (double) totalBytes / runs;
+        }
+
+        double megabytesPerSecond() {
+            return totalBytes / 1e6 / (totalNanos / 1e9);
+        }
+    }
+
+    static Result measure(Bench bench, int warmup, int minRuns) throws Exception {
+        long tid = Thread.currentThread().getId();
+        for (int i = 0; i < warmup; i++) {
+            runOnce(bench);
+        }
+
+        List<Long> times = new ArrayList<Long>();
+        Result res = new Result();
+        while (times.size() < minRuns || res.totalNanos < MIN_NANOS) {
+            bench.prepare();
+            CompilationContext previous = bench.ctx.bind();
+            try {
+                long bytes = THREADS.getThreadAllocatedBytes(tid);
+                long start = System.nanoTime();
+                bench.run();
+                long elapsed = System.nanoTime() - start;
+                res.totalBytes += THREADS.getThreadAllocatedBytes(tid) - bytes;
+                res.totalNanos += elapsed;
+                times.add(elapsed);
+            } finally {
+                CompilationContext.restore(previous);
+            }
+        }
+        Collections.sort(times);
+        res.runs = times.size();
+        res.minNanos = times.get(0);
+        res.medianNanos = times.get(times.size() / 2);
+        return res;
+    }
+
+    private static void runOnce(Bench bench) throws Exception {
+        bench.prepare();
+        CompilationContext previous = bench.ctx.bind();
+        try {
+            bench.run();
+        } finally {
+            CompilationContext.restore(previous);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: java Benchmarks [-w N] [-n N] [-stage name ...] "
+                           + "[-size small|medium|huge ...] [file ...]");
+        System.exit(2);
+    }
+
+    private static int count(String[] args, int i) {
+        if (i == args.length) {
+            usage();
+        }
+        try {
+            int n = Integer.parseInt(args[i]);
+            if (n >= 0) {
+                return n;
+            }
+        } catch (NumberFormatException nfe) {
+        }
+        usage();
+        return 0;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        int warmup = 3;
+        int minRuns = 5;
+        List<String> stages = new ArrayList<String>();
+        List<String> sizes = new ArrayList<String>();
+        List<String> files = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-w")) {
+                warmup = count(args, ++i);
+            } else if (args[i].equals("-n")) {
+                minRuns = Math.max(1, count(args, ++i));
+            } else if (args[i].equals("-stage")) {
+                if (++i == args.length || !Arrays.asList(STAGES).contains(args[i])) {
+                    usage();
+                }
+                stages.add(args[i]);
+            } else if (args[i].equals("-size")) {
+                if (++i == args.length || !Arrays.asList(SIZES).contains(args[i])) {
+                    usage();
+                }
+                sizes.add(args[i]);
+            } else if (args[i].startsWith("-")) {
+                usage();
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (stages.isEmpty()) {
+            stages.addAll(Arrays.asList(STAGES));
+        }
+
+        // the programs to run over, by name
+        Map<String, String> inputs = new LinkedHashMap<String, String>();
+        if (files.isEmpty()) {
+            for (int s = 0; s < SIZES.length; s++) {
+                if (sizes.isEmpty() || sizes.contains(SIZES[s])) {
+                    inputs.put(SIZES[s], program(SIZE_FUNCTIONS[s]));
+                }
+            }
+        } else {
+            for (String f : files) {
+                inputs.put(f, new String(Files.readAllBytes(Paths.get(f))));
+            }
+        }
+
+        System.out.println(String.format("%-8s %-12s %8s %5s %12s %12s %12s %10s",
+                                         "stage", "input", "tokens", "runs", "min ms",
+                                         "median ms", "KB/run", "MB/s"));
+        for (String stage : stages) {
+            for (Map.Entry<String, String> input : inputs.entrySet()) {
+                Bench bench = make(stage, input.getValue());
+                int tokens = bench.scan().size();
+                Result res = measure(bench, warmup, minRuns);
+                System.out.println(String.format("%-8s %-12s %8d %5d %12.3f %12.3f %12.1f %10.1f",
+                                                 stage, input.getKey(), tokens, res.runs,
+                                                 res.minNanos / 1e6, res.medianNanos / 1e6,
+                                                 res.bytesPerRun() / 1024,
+                                                 res.megabytesPerSecond()));
+            }
+        }
+    }
+}
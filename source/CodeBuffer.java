@@ -0,0 +1,86 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * CodeBuffer
+ *
+ * A Writer that keeps everything written to it in a growable char array.
+ * It is used as the output sink for generated code when the code is wanted
+ * in memory (the visualizer and the batch compiler), so that no temporary
+ * file is needed. Unlike StringWriter and CharArrayWriter it does no
+ * locking, since a buffer belongs to a single compilation.
+ */
+class CodeBuffer extends Writer {
+    private char[] buf;
+    private int count;
+
+    public CodeBuffer() {
+        this(4096);
+    }
+
+    public CodeBuffer(int initialSize) {
+        buf = new char[Math.max(initialSize, 16)];
+        count = 0;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, needed));
+        }
+    }
+
+    public void write(int c) {
+        ensureCapacity(count + 1);
+        buf[count++] = (char)c;
+    }
+
+    public void write(char[] cbuf, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(cbuf, off, buf, count, len);
+        count += len;
+    }
+
+    public void write(String str, int off, int len) {
+        ensureCapacity(count + len);
+        str.getChars(off, off + len, buf, count);
+        count += len;
+    }
+
+    public Writer append(CharSequence csq) {
+        String s = String.valueOf(csq);
+        write(s, 0, s.length());
+        return this;
+    }
+
+    /**
+     * Returns the number of characters written so far.
+     */
+    public int length() {
+        return count;
+    }
+
+    /**
+     * Discards everything written so far, keeping the array for reuse.
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * Writes the contents of the buffer to the given writer without making
+     * a copy of them.
+     */
+    public void writeTo(Writer out) throws IOException {
+        out.write(buf, 0, count);
+    }
+
+    public String toString() {
+        return new String(buf, 0, count);
+    }
+
+    public void flush() {
+    }
+
+    public void close() {
+    }
+}
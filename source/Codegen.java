@@ -1,4 +1,7 @@
 import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
 
 // **********************************************************************
 // The Codegen class provides constants and operations useful for code
@@ -19,12 +22,20 @@ import java.io.*;
 //     genLabel
 // and a method nextLabel to create and return a new label.
 //
+// Each node hands the bodies of functions and statements, and the code
+// that follows them, to then instead of generating them itself, and
+// ProgramNode.codeGen does it all with run, so code generation does not
+// run out of stack on deeply nested statements (see WorkStack).
+//
+// Generated code is written to the output of the CompilationContext bound
+// to the current thread, and labels come from that context as well. Any
+// Writer can be made the output with setOutput: a CodeBuffer to keep the
+// code in memory, a DocumentWriter to put it in a text area, or the writer
+// returned by fileSink to write it to a file.
+//
 // **********************************************************************
 
 public class Codegen {
-    // file into which generated code is written
-    public static PrintWriter p = null;
-
     // values of true and false
     public static final String TRUE = "1";
     public static final String FALSE = "0";
@@ -44,8 +55,37 @@ public class Codegen {
     private static final int MAXLEN = 4;
 
 
-    // for generating labels
-    private static int currLabel = 0;
+    // **********************************************************************
+    // **********************************************************************
+    // OUTPUT
+    // **********************************************************************
+    // **********************************************************************
+
+    // **********************************************************************
+    // setOutput
+    //    given:  a Writer to send generated code to
+    //    do:     make it the output of the current compilation and return
+    //            the PrintWriter that must also be passed to codeGen
+    // **********************************************************************
+    public static PrintWriter setOutput(Writer sink) {
+        PrintWriter p = (sink instanceof PrintWriter) ? (PrintWriter)sink
+                                                      : new PrintWriter(sink);
+        CompilationContext.current().setOutput(p);
+        return p;
+    }
+
+    // **********************************************************************
+    // fileSink
+    //    given:  path of a file
+    //    do:     return a Writer that writes (UTF-8) straight to a
+    //            FileChannel on the file, replacing what it contained
+    // **********************************************************************
+    public static Writer fileSink(Path path) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE,
+                                          StandardOpenOption.WRITE,
+                                          StandardOpenOption.TRUNCATE_EXISTING);
+        return Channels.newWriter(ch, StandardCharsets.UTF_8.newEncoder(), 1 << 16);
+    }
 
 
     // **********************************************************************
@@ -61,6 +101,7 @@ public class Codegen {
     // **********************************************************************
     public static void generateWithComment(String opcode, String comment,
                                         String arg1, String arg2, String arg3) {
+        PrintWriter p = CompilationContext.current().getOutput();
         int space = MAXLEN - opcode.length() + 2;
 
         p.print("\t" + opcode);
@@ -100,6 +141,7 @@ public class Codegen {
     // **********************************************************************
     public static void generate(String opcode, String arg1, String arg2,
                                 String arg3) {
+        PrintWriter p = CompilationContext.current().getOutput();
         int space = MAXLEN - opcode.length() + 2;
 
         p.print("\t" + opcode);
@@ -135,6 +177,7 @@ public class Codegen {
     // **********************************************************************
     public static void generate(String opcode, String arg1, String arg2,
                                 int arg3) {
+        PrintWriter p = CompilationContext.current().getOutput();
         int space = MAXLEN - opcode.length() + 2;
 
         p.print("\t" + opcode);
@@ -149,6 +192,7 @@ public class Codegen {
     //    do:     write nicely formatted code (ending with new line)
     // **********************************************************************
     public static void generate(String opcode, String arg1, int arg2) {
+        PrintWriter p = CompilationContext.current().getOutput();
         int space = MAXLEN - opcode.length() + 2;
 
         p.print("\t" + opcode);
@@ -166,6 +210,7 @@ public class Codegen {
     // **********************************************************************
     public static void generateIndexed(String opcode, String arg1, String arg2,
                                        int arg3, String comment) {
+        PrintWriter p = CompilationContext.current().getOutput();
         int space = MAXLEN - opcode.length() + 2;
 
         p.print("\t" + opcode);
@@ -189,6 +234,7 @@ public class Codegen {
     // **********************************************************************
     public static void generateLabeled(String label, String opcode,
                                        String comment, String arg1) {
+        PrintWriter p = CompilationContext.current().getOutput();
         int space = MAXLEN - opcode.length() + 2;
 
         p.print(label + ":");
@@ -232,6 +278,7 @@ public class Codegen {
     //   generate: L:    # comment
     // **********************************************************************
     public static void genLabel(String label, String comment) {
+        PrintWriter p = CompilationContext.current().getOutput();
         p.print(label + ":");
         if (comment != "")
             p.print("\t\t" + "# " + comment);
@@ -247,8 +294,25 @@ public class Codegen {
     //        L0 L1 L2, etc.
     // **********************************************************************
     public static String nextLabel() {
-        Integer k = new Integer(currLabel++);
-        String tmp = ".L" + k;
-        return(tmp);
+        return CompilationContext.current().nextLabel();
+    }
+
+    // **********************************************************************
+    // then
+    //    given:  the code generation for part of a node
+    //    do:     do it after the parts handed to then before it, and
+    //            before the nodes that follow the current one
+    // **********************************************************************
+    public static void then(Runnable step) {
+        CompilationContext.current().codeSteps().then(step);
+    }
+
+    // **********************************************************************
+    // run
+    //    given:  the code generation for a node
+    //    do:     do it, and everything it hands to then
+    // **********************************************************************
+    public static void run(Runnable first) {
+        CompilationContext.current().codeSteps().run(first);
     }
 }
@@ -0,0 +1,149 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * CompilationContext
+ *
+ * Holds all of the state that belongs to a single compilation: the error
+ * and warning messages, the writer generated code goes to, the counter
+ * used to create labels, the code generation still to do, and the pool of
+ * identifier names.
+ * Two compilations that use different contexts can run at the same time.
+ *
+ * A scanner reports to the context that was bound when it was created.
+ * The parser and the AST passes reach it through ErrMsg and Codegen, which
+ * use the context bound to the current thread (see bind()). A thread that never binds one
+ * gets its own default context.
+ */
+class CompilationContext {
+    // error and warning messages
+    private boolean err = false;
+    private ArrayList<String> listErrors = new ArrayList<String>();
+
+    // writer into which generated code is written
+    private PrintWriter out = null;
+
+    // for generating labels
+    private int currLabel = 0;
+
+    // the parts of codeGen still to do (see Codegen.then)
+    private final WorkStack codeSteps = new WorkStack();
+
+    // ids of the identifiers and string literals
+    private final NamePool names;
+
+    private static final ThreadLocal<CompilationContext> current =
+        ThreadLocal.withInitial(CompilationContext::new);
+
+    CompilationContext() {
+        this(new NamePool());
+    }
+
+    /**
+     * Makes a context that shares a name pool with others, so that ids
+     * handed out to one of them mean the same in all of them.
+     */
+    CompilationContext(NamePool names) {
+        this.names = names;
+    }
+
+    /**
+     * Returns the context bound to the current thread.
+     */
+    static CompilationContext current() {
+        return current.get();
+    }
+
+    /**
+     * Binds this context to the current thread and returns the context that
+     * was bound before, so the caller can put it back with restore().
+     */
+    CompilationContext bind() {
+        CompilationContext previous = current.get();
+        current.set(this);
+        return previous;
+    }
+
+    /**
+     * Binds the given context (as returned by bind()) to the current thread.
+     */
+    static void restore(CompilationContext previous) {
+        current.set(previous);
+    }
+
+    /**
+     * Throws a CancellationException if the thread doing the compilation has
+     * been interrupted. The scanner and the loops over declarations and
+     * statements call this, so that a stage the visualizer cancels stops
+     * soon after.
+     */
+    static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Records a fatal error message.
+     */
+    void fatal(int lineNum, int charNum, String msg) {
+        err = true;
+        listErrors.add("LINE:"+lineNum + " CHAR:" + charNum + " ***ERROR*** " + msg);
+    }
+
+    /**
+     * Records a warning message.
+     */
+    void warn(int lineNum, int charNum, String msg) {
+        listErrors.add("LINE:"+lineNum + " CHAR:" + charNum + " ***WARNING*** " + msg);
+    }
+
+    boolean getErr() {
+        return err;
+    }
+
+    ArrayList<String> getErrors() {
+        return listErrors;
+    }
+
+    void clearErrors() {
+        listErrors.clear();
+        err = false;
+    }
+
+    /**
+     * Adds messages that were recorded before (see getErrors()). If err is
+     * true, at least one of them was an error.
+     */
+    void replay(List<String> messages, boolean err) {
+        listErrors.addAll(messages);
+        this.err |= err;
+    }
+
+    /**
+     * Sets the writer that generated code is written to.
+     */
+    void setOutput(PrintWriter out) {
+        this.out = out;
+    }
+
+    PrintWriter getOutput() {
+        return out;
+    }
+
+    NamePool names() {
+        return names;
+    }
+
+    WorkStack codeSteps() {
+        return codeSteps;
+    }
+
+    /**
+     * Returns a different label each time: .L0 .L1 .L2, etc.
+     */
+    String nextLabel() {
+        return ".L" + currLabel++;
+    }
+}
@@ -7,6 +7,7 @@ import javax.swing.BorderFactory;
 import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JTable;
+import javax.swing.SwingWorker;
 
 import org.abego.treelayout.TreeForTreeLayout;
 import org.abego.treelayout.TreeLayout;
@@ -19,6 +20,7 @@ import org.abego.treelayout.demo.swing.TextInBoxTreePane;
 import java.util.*;
 import java.io.*;
 import java.nio.file.*;
+import java.util.concurrent.*;
 import java_cup.runtime.*;
 import project.*;
 
@@ -67,6 +69,7 @@ public class CompilerVisualizer extends javax.swing.JFrame {
         nextButton = new javax.swing.JButton();
         tokenButton = new javax.swing.JButton();
         grammarButton = new javax.swing.JButton();
+        liveCheckBox = new javax.swing.JCheckBox();
         jPanel2 = new javax.swing.JPanel();
         startPanel = new javax.swing.JPanel();
         titleText = new javax.swing.JTextField();
@@ -76,6 +79,8 @@ public class CompilerVisualizer extends javax.swing.JFrame {
         panel1 = new javax.swing.JPanel();
         programHolder = new javax.swing.JScrollPane();
         enterCodeArea = new javax.swing.JTextArea();
+        liveErrorHolder = new javax.swing.JScrollPane();
+        liveErrorList = new javax.swing.JList<String>();
         programInstructions = new javax.swing.JTextField();
         panel2 = new javax.swing.JPanel();
         lexicalHolder = new javax.swing.JScrollPane();
@@ -233,6 +238,17 @@ public class CompilerVisualizer extends javax.swing.JFrame {
             }
         });
 
+        liveCheckBox.setFont(new java.awt.Font("Nirmala UI Semilight", 0, 12)); // NOI18N
+        liveCheckBox.setForeground(new java.awt.Color(255, 255, 255));
+        liveCheckBox.setOpaque(false);
+        liveCheckBox.setText("Live");
+        liveCheckBox.setToolTipText("Compile the program as it is typed");
+        liveCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                liveCheckBoxActionPerformed(evt);
+            }
+        });
+
         javax.swing.GroupLayout jPanel1Layout = new javax.swing.GroupLayout(jPanel1);
         jPanel1.setLayout(jPanel1Layout);
         jPanel1Layout.setHorizontalGroup(
@@ -244,6 +260,8 @@ public class CompilerVisualizer extends javax.swing.JFrame {
                 .addComponent(tokenButton)
                 .addGap(18, 18, 18)
                 .addComponent(grammarButton)
+                .addGap(18, 18, 18)
+                .addComponent(liveCheckBox)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                 .addComponent(backButton, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addGap(18, 18, 18)
@@ -260,7 +278,8 @@ public class CompilerVisualizer extends javax.swing.JFrame {
                         .addComponent(nextButton, javax.swing.GroupLayout.PREFERRED_SIZE, 40, javax.swing.GroupLayout.PREFERRED_SIZE))
                     .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, jPanel1Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                         .addComponent(grammarButton)
-                        .addComponent(tokenButton))
+                        .addComponent(tokenButton)
+                        .addComponent(liveCheckBox))
                     .addComponent(startButton, javax.swing.GroupLayout.Alignment.TRAILING, javax.swing.GroupLayout.PREFERRED_SIZE, 40, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addGap(16, 16, 16))
         );
@@ -340,6 +359,10 @@ public class CompilerVisualizer extends javax.swing.JFrame {
         enterCodeArea.setRows(5);
         programHolder.setViewportView(enterCodeArea);
 
+        liveErrorList.setFont(new java.awt.Font("Nirmala UI Semilight", 0, 14)); // NOI18N
+        liveErrorHolder.setViewportView(liveErrorList);
+        liveErrorHolder.setVisible(false);
+
         programInstructions.setEditable(false);
         programInstructions.setBackground(new java.awt.Color(173, 216, 230));
         programInstructions.setFont(new java.awt.Font("Nirmala UI Semilight", 0, 18)); // NOI18N
@@ -354,6 +377,10 @@ public class CompilerVisualizer extends javax.swing.JFrame {
                 .addGap(30, 30, 30)
                 .addComponent(programHolder, javax.swing.GroupLayout.DEFAULT_SIZE, 1185, Short.MAX_VALUE)
                 .addGap(30, 30, 30))
+            .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, panel1Layout.createSequentialGroup()
+                .addGap(30, 30, 30)
+                .addComponent(liveErrorHolder, javax.swing.GroupLayout.DEFAULT_SIZE, 1185, Short.MAX_VALUE)
+                .addGap(30, 30, 30))
             .addGroup(panel1Layout.createSequentialGroup()
                 .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                 .addComponent(programInstructions, javax.swing.GroupLayout.PREFERRED_SIZE, 670, javax.swing.GroupLayout.PREFERRED_SIZE)
@@ -366,6 +393,8 @@ public class CompilerVisualizer extends javax.swing.JFrame {
                 .addComponent(programInstructions, javax.swing.GroupLayout.PREFERRED_SIZE, 44, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addGap(30, 30, 30)
                 .addComponent(programHolder, javax.swing.GroupLayout.DEFAULT_SIZE, 496, Short.MAX_VALUE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(liveErrorHolder, javax.swing.GroupLayout.PREFERRED_SIZE, 100, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addGap(30, 30, 30))
         );
 
@@ -747,7 +776,7 @@ public class CompilerVisualizer extends javax.swing.JFrame {
         jPanel2.add(panelList[0]);
         jPanel2.repaint();
         jPanel2.revalidate();
-        ErrMsg.clearErrors();
+        cancelStage();
         
     }
 
@@ -757,6 +786,7 @@ public class CompilerVisualizer extends javax.swing.JFrame {
      */
     private void backButtonActionPerformed(java.awt.event.ActionEvent evt) {
         
+        cancelStage();
         if(curPanel > 0) {
             curPanel--;
             jPanel2.removeAll();
@@ -764,43 +794,101 @@ public class CompilerVisualizer extends javax.swing.JFrame {
             jPanel2.repaint();
             jPanel2.revalidate();
         }
-
-        
-        ErrMsg.clearErrors();
-        
-        
     
     }
 
     /**
      * When next button is pressed, call appropriate step of compiler, then go to next page unless there is an error
      * If there is an error, do not go to next page, instead pop up dialog
+     * The step runs in the background (see runStage), which goes to the next page when it is done
      * @param evt
      */
     private void nextButtonActionPerformed(java.awt.event.ActionEvent evt) {
-        ErrMsg.clearErrors();
+        if(stageWorker != null && stageWorker.live) {
+            // whatever the live compile already finished is kept in the cache
+            cancelStage();
+        } else if(stageWorker != null) {
+            // a step is still running
+            return;
+        }
+
         if(curPanel == 2) {
-            buildTokens();
+            runStage(StageCache.TOKENS);
         } else if(curPanel == 4) {
-            buildTree();
+            runStage(StageCache.TREE);
         } else if(curPanel == 6) {
-            buildSymbols();
+            runStage(StageCache.SYMBOLS);
         } else if(curPanel == 8) {
-            buildCode();
+            runStage(StageCache.CODE);
+        } else {
+            nextPanel();
         }
+        
+    }
 
+    /**
+     * This method turns live mode on and off. In live mode the program is compiled in the background whenever the
+     * user stops typing for a moment, and the tokens, tree, symbols, code and errors are all updated
+     * @param evt
+     */
+    private void liveCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {
+        if(liveTimer == null) {
+            liveTimer = new javax.swing.Timer(LIVE_DELAY, e -> runLive());
+            liveTimer.setRepeats(false);
+            liveListener = new javax.swing.event.DocumentListener() {
+                public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                    liveTimer.restart();
+                }
 
-        if(ErrMsg.getErr()) {
-            buildErrors();
-            
-        } else if(curPanel<10) {
+                public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                    liveTimer.restart();
+                }
+
+                public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                }
+            };
+        }
+
+        if(liveCheckBox.isSelected()) {
+            enterCodeArea.getDocument().addDocumentListener(liveListener);
+            liveErrorHolder.setVisible(true);
+            runLive();
+        } else {
+            enterCodeArea.getDocument().removeDocumentListener(liveListener);
+            liveTimer.stop();
+            if(stageWorker != null && stageWorker.live) {
+                cancelStage();
+            }
+            liveErrorHolder.setVisible(false);
+        }
+        panel1.revalidate();
+    }
+
+    /**
+     * This method compiles the program in the background for live mode, replacing a live compile that is still
+     * running for older text. A step started with the next button is left to finish first
+     */
+    private void runLive() {
+        if(stageWorker != null && !stageWorker.live) {
+            liveTimer.restart();
+            return;
+        }
+        cancelStage();
+        stageWorker = new StageWorker(StageCache.CODE, enterCodeArea.getText(), true);
+        stageExecutor.execute(stageWorker);
+    }
+
+    /**
+     * This method goes to the next page
+     */
+    private void nextPanel() {
+        if(curPanel<10) {
             curPanel++;
             jPanel2.removeAll();
             jPanel2.add(panelList[curPanel]);
             jPanel2.repaint();
             jPanel2.revalidate();
         }
-        
     }
 
     /**
@@ -847,130 +935,312 @@ public class CompilerVisualizer extends javax.swing.JFrame {
     }
 
     /**
-     * This method scans the input program into tokens, then shows their information in a table
+     * This method starts running a step of the compiler in the background. A progress dialog with a cancel button
+     * is shown if the step takes more than a moment
      */
-    public void buildTokens() {
-        try {
-            String text = enterCodeArea.getText();
-            sr = new StringReader(text);
-            scanner = new Yylex(sr);
-            Symbol token = scanner.next_token();
-            ArrayList<String> tokens = new ArrayList<String>();
-            CharNum.num = 1;
-            while (token.sym != sym.EOF) {
-                tokens.add(sym.terminalNames[token.sym]+"("+((TokenVal)token.value).linenum+","+((TokenVal)token.value).charnum+")");
-                token = scanner.next_token();
+    private void runStage(int stage) {
+        stageWorker = new StageWorker(stage, enterCodeArea.getText());
+        stageWorker.addPropertyChangeListener(evt -> {
+            if("progress".equals(evt.getPropertyName()) && progressBar != null) {
+                progressBar.setValue((Integer)evt.getNewValue());
+            } else if("note".equals(evt.getPropertyName()) && progressBar != null) {
+                progressBar.setString((String)evt.getNewValue());
             }
+        });
+        setCursor(java.awt.Cursor.getPredefinedCursor(java.awt.Cursor.WAIT_CURSOR));
+        stageExecutor.execute(stageWorker);
+
+        if(progressTimer == null) {
+            progressTimer = new javax.swing.Timer(300, evt -> showProgress());
+            progressTimer.setRepeats(false);
+        }
+        progressTimer.restart();
+    }
+
+    /**
+     * This method cancels the step that is running, if there is one. The step stops at the next declaration,
+     * statement or token it gets to
+     */
+    private void cancelStage() {
+        if(stageWorker != null) {
+            stageWorker.cancel(true);
+            stageWorker = null;
+            hideProgress();
+        }
+    }
+
+    private void showProgress() {
+        if(stageWorker == null) {
+            return;
+        }
+        if(progressDialog == null) {
+            progressBar = new javax.swing.JProgressBar(0, 100);
+            progressBar.setStringPainted(true);
+            javax.swing.JButton cancelButton = new javax.swing.JButton("Cancel");
+            cancelButton.addActionListener(evt -> cancelStage());
+
+            javax.swing.JPanel content = new javax.swing.JPanel(new java.awt.BorderLayout(10, 10));
+            content.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+            content.add(progressBar, java.awt.BorderLayout.CENTER);
+            content.add(cancelButton, java.awt.BorderLayout.EAST);
+
+            progressDialog = new javax.swing.JDialog(this, "Compiling", false);
+            progressDialog.setDefaultCloseOperation(javax.swing.JDialog.DO_NOTHING_ON_CLOSE);
+            progressDialog.setContentPane(content);
+            progressDialog.pack();
+            progressDialog.setSize(Math.max(progressDialog.getWidth(), 350), progressDialog.getHeight());
+        }
+        progressDialog.setLocation(X-progressDialog.getWidth()/2, Y-progressDialog.getHeight()/2);
+        progressDialog.setVisible(true);
+    }
+
+    private void hideProgress() {
+        if(progressTimer != null) {
+            progressTimer.stop();
+        }
+        if(progressDialog != null) {
+            progressDialog.setVisible(false);
+        }
+        setCursor(java.awt.Cursor.getDefaultCursor());
+    }
 
-            double rows = Math.ceil((float)tokens.size()/(float)8);
-            int numRows = (int)rows;
+    /**
+     * This class runs a step of the compiler, along with any step before it that has not run yet for the program,
+     * off the Event Dispatch Thread. Each step returns the change to its view, which is published so that only
+     * the swap of the Swing models happens on the Event Dispatch Thread
+     */
+    private class StageWorker extends SwingWorker<Void, Runnable> {
+        private final String[] NOTES = {"Scanning tokens", "Parsing", "Analyzing names and types", "Generating code"};
+        private int stage;
+        private String text;
+        final boolean live;
+
+        StageWorker(int stage, String text) {
+            this(stage, text, false);
+        }
 
-            String[][] data = new String[numRows][8];
+        StageWorker(int stage, String text, boolean live) {
+            this.stage = stage;
+            this.text = text;
+            this.live = live;
+        }
 
-            for(int i = 0;i<numRows;i++) {
-                for(int j = 0;j<8;j++) {
-                    if(i*8+j < tokens.size()) {
-                        data[i][j] = tokens.get(i*8+j);
+        protected Void doInBackground() throws Exception {
+            cache.setText(text);
+            CompilationContext ctx = cache.getContext();
+            CompilationContext previous = ctx.bind();
+            int running = -1;
+            int last = -1;              // the last stage that finished without errors
+            try {
+                ctx.clearErrors();
+                for(int s = StageCache.TOKENS; s <= stage; s++) {
+                    if(cache.isDone(s)) {
+                        if(s == stage || cache.failed(s)) {
+                            cache.replay(s);
+                            if(!cache.failed(s)) {
+                                last = s;
+                            }
+                            break;
+                        }
+                        last = s;
+                        continue;
                     }
+
+                    setProgress(100*s/(stage+2));
+                    firePropertyChange("note", null, NOTES[s]);
+                    running = s;
+                    Runnable view = buildStage(s);
+                    running = -1;
+                    if(view != null) {
+                        publish(view);
+                    }
+                    if(!cache.isDone(s) || cache.failed(s)) {
+                        break;
+                    }
+                    last = s;
+                    if(s < stage) {
+                        ctx.clearErrors();
+                    }
+                }
+
+                if(live) {
+                    String[] errors = ctx.getErrors().toArray(new String[0]);
+                    publish(() -> liveErrorList.setListData(errors));
+                }
+
+                // laying out the tree takes longer than the other steps, so it is done last, once the errors are known
+                if(last >= StageCache.TREE && shownTree != cache.astRoot) {
+                    setProgress(100*(stage+1)/(stage+2));
+                    firePropertyChange("note", null, "Laying out tree");
+                    publish(layoutTree());
+                }
+                setProgress(100);
+            } catch(CancellationException ce) {
+                // symbols and code generation work on the AST, which may now be half analyzed
+                if(running >= StageCache.SYMBOLS) {
+                    cache.discardFrom(StageCache.TREE);
+                } else if(running >= 0) {
+                    cache.discardFrom(running);
                 }
+                throw ce;
+            } finally {
+                CompilationContext.restore(previous);
             }
+            return null;
+        }
 
-            tokenTable.setFont(new java.awt.Font("Nirmala UI Semilight", 0, 14)); 
-            tokenTable.setModel(new javax.swing.table.DefaultTableModel(
-                data,
-            new String [] {
-                "Title x", "Title 2", "Title 3", "Title 4", "null", "null", "null", "null"
+        private Runnable buildStage(int s) throws Exception {
+            if(s == StageCache.TOKENS) {
+                return buildTokens(text);
+            } else if(s == StageCache.TREE) {
+                return buildTree();
+            } else if(s == StageCache.SYMBOLS) {
+                return buildSymbols();
             }
-            )   {
-                Class[] types = new Class [] {
-                    java.lang.String.class, java.lang.String.class, java.lang.String.class, java.lang.String.class, java.lang.String.class, java.lang.String.class, java.lang.String.class, java.lang.String.class
-                };
-                boolean[] canEdit = new boolean [] {
-                    false, false, false, false, false, false, false, false
-                };
+            return buildCode();
+        }
 
-                public Class getColumnClass(int columnIndex) {
-                    return types [columnIndex];
-                }
+        protected void process(List<Runnable> views) {
+            // the views are applied even if the worker has been cancelled since they were published: their stages
+            // are already done in the cache, so the next run would not build them again
+            for(Runnable view : views) {
+                view.run();
+            }
+        }
 
-                public boolean isCellEditable(int rowIndex, int columnIndex) {
-                    return canEdit [columnIndex];
+        protected void done() {
+            if(this != stageWorker) {
+                // cancelled
+                return;
+            }
+            stageWorker = null;
+            hideProgress();
+            try {
+                get();
+            } catch(Exception e) {
+                System.err.println("Unexpected error in " + NOTES[stage].toLowerCase() + ": " + e);
+                return;
             }
-        });
-        tokenTable.setTableHeader(null);
-        tokenTable.setShowGrid(true);
-        tokenTable.setShowHorizontalLines(true);
-        tokenTable.setShowVerticalLines(true);
-        tokenHolder.setViewportView(tokenTable);
 
-        } catch (Exception e) {
-            
+            CompilationContext ctx = cache.getContext();
+            if(live) {
+                // the errors have already been shown
+                return;
+            } else if(ctx.getErr()) {
+                buildErrors(ctx.getErrors());
+            } else {
+                nextPanel();
+            }
         }
     }
 
     /**
-     * This method builds the abstract syntax tree by parsing the program, then going through the tree to create the visual representation
+     * This method scans the input program into tokens, then returns the change that shows their information in a table
+     * Only the lines that changed since the last time are scanned again
      */
-    public void buildTree() {
+    public Runnable buildTokens(String text) {
+        try {
+            cache.lexer.scan(text);
+            cache.lexer.report(CompilationContext.current());
+            cache.tokens = cache.lexer.tokens();
+        } catch (IOException e) {
+            System.err.println("Unexpected error in buildTokens");
+            return null;
+        }
+
+        javax.swing.table.TableModel model = new TokenTableModel(cache.tokens);
+        cache.finish(StageCache.TOKENS);
+
+        return () -> {
+            tokenTable.setFont(new java.awt.Font("Nirmala UI Semilight", 0, 14));
+            tokenTable.setModel(model);
+            tokenTable.setTableHeader(null);
+            tokenTable.setShowGrid(true);
+            tokenTable.setShowHorizontalLines(true);
+            tokenTable.setShowVerticalLines(true);
+            tokenHolder.setViewportView(tokenTable);
+        };
+    }
+
+    /**
+     * This method builds the abstract syntax tree by parsing the program. The visual representation is made
+     * afterwards by layoutTree
+     */
+    public Runnable buildTree() {
 
             try {
-                String text = enterCodeArea.getText();
-                sr = new StringReader(text);
-                scanner = new Yylex(sr);
-                p = new parser(scanner);
+                parser p = new parser(cache.tokens.cursor());
                 Symbol CFGroot = p.parse();
-                astRoot = (ProgramNode)CFGroot.value;
-                TextInBox root = new TextInBox("program",55,20);
-                DefaultTreeForTreeLayout<TextInBox> tree = new DefaultTreeForTreeLayout<TextInBox>(root);
-                astRoot.buildTree(tree,root);
-
-                // setup the tree layout configuration
-		        double gapBetweenLevels = 20;
-		        double gapBetweenNodes = 10;
-		        DefaultConfiguration<TextInBox> configuration = new DefaultConfiguration<TextInBox>(
-				gapBetweenLevels, gapBetweenNodes);
-
-		        // create the NodeExtentProvider for TextInBox nodes
-		        TextInBoxNodeExtentProvider nodeExtentProvider = new TextInBoxNodeExtentProvider();
-
-		        // create the layout
-		        TreeLayout<TextInBox> treeLayout = new TreeLayout<TextInBox>(tree,
-				nodeExtentProvider, configuration);
-
-		        // Create a panel that draws the nodes and edges and show the panel
-                TextInBoxTreePane panel = new TextInBoxTreePane(treeLayout);
-                treeHolder.setViewportView(panel);
-                
+                cache.astRoot = (ProgramNode)CFGroot.value;
+                cache.finish(StageCache.TREE);
+
+            } catch(CancellationException ce) {
+                throw ce;
             } catch(Exception e) {
-                System.err.println("Unexpected error in buildTree method");
+                if(ErrMsg.getErr()) {
+                    // a syntax error, which the parser has already reported
+                    cache.finish(StageCache.TREE);
+                } else {
+                    System.err.println("Unexpected error in buildTree method");
+                }
             }
+            return null;
+    }
+
+    /**
+     * This method goes through the abstract syntax tree to create the visual representation, then returns the
+     * change that shows it
+     */
+    public Runnable layoutTree() {
+        ProgramNode astRoot = cache.astRoot;
+        TextInBox root = new TextInBox("program",55,20);
+        DefaultTreeForTreeLayout<TextInBox> tree = new DefaultTreeForTreeLayout<TextInBox>(root);
+        astRoot.buildTree(tree,root);
+
+        // setup the tree layout configuration
+        double gapBetweenLevels = 20;
+        double gapBetweenNodes = 10;
+        DefaultConfiguration<TextInBox> configuration = new DefaultConfiguration<TextInBox>(
+                gapBetweenLevels, gapBetweenNodes);
+
+        // create the NodeExtentProvider for TextInBox nodes
+        TextInBoxNodeExtentProvider nodeExtentProvider = new TextInBoxNodeExtentProvider();
+
+        // create the layout
+        TreeLayout<TextInBox> treeLayout = new TreeLayout<TextInBox>(tree,
+                nodeExtentProvider, configuration);
+
+        // Create a panel that draws the nodes and edges and show the panel
+        return () -> {
+            TextInBoxTreePane panel = new TextInBoxTreePane(treeLayout);
+            treeHolder.setViewportView(panel);
+            shownTree = astRoot;
+        };
     }
 
     /**
      * This method does name and type analysis by using a symbol table. The symbol table is then converted to a visual table
      */
-    public void buildSymbols() {
-        SymTable symT = astRoot.analyze();
-        if(ErrMsg.getErr()) {
-            return;
-        }
-        astRoot.nameAnalysis();
-        astRoot.typeCheck();
+    public Runnable buildSymbols() {
+        ProgramNode astRoot = cache.astRoot;
+        SymTable symT = astRoot.check();
         if(ErrMsg.getErr()) {
-            return;
+            cache.finish(StageCache.SYMBOLS);
+            return null;
         }
+        cache.symT = symT;
 
-        List<HashMap<String, Sym>> list = symT.getList();
-        List<HashMap<String, Sym>> garbage = symT.getGarbage();
+        List<SymTable.Scope> list = symT.getList();
+        List<SymTable.Scope> garbage = symT.getGarbage();
         String[] columnNames = {"ID","Type","Category","Scope"};
         ArrayList<String[]> tData = new ArrayList<String[]>();
 
-        for (HashMap<String, Sym> symTab : list) {
-            for(Map.Entry m : symTab.entrySet()) {
+        for (SymTable.Scope symTab : list) {
+            for(int i = 0; i < symTab.size(); i++) {
                 String[] entry = new String[4];
-                entry[0] = (String)m.getKey();
-                entry[1] = ((Sym)m.getValue()).getType2();
-                entry[2] = ((Sym)m.getValue()).getKind();
+                entry[0] = symT.name(symTab.idAt(i));
+                entry[1] = symTab.symAt(i).getType2();
+                entry[2] = symTab.symAt(i).getKind();
                 entry[3] = "global";
 
                 tData.add(entry);
@@ -979,17 +1249,18 @@ public class CompilerVisualizer extends javax.swing.JFrame {
             
         }
 
-        for (HashMap<String, Sym> symTab : garbage) {
-            String scope = "null";
-            if(symTab.containsKey("$scope")) {
-                scope = symTab.get("$scope").toString();
-                symTab.remove("$scope");
+        for (SymTable.Scope symTab : garbage) {
+            if(symTab.containsKey(NamePool.SCOPE)) {
+                String scope = symTab.get(NamePool.SCOPE).toString();
 
-                for(Map.Entry m : symTab.entrySet()) {
+                for(int i = 0; i < symTab.size(); i++) {
+                    if(symTab.idAt(i) == NamePool.SCOPE) {
+                        continue;
+                    }
                     String[] entry = new String[4];
-                    entry[0] = (String)m.getKey();
-                    entry[1] = ((Sym)m.getValue()).getType2();
-                    entry[2] = ((Sym)m.getValue()).getKind();
+                    entry[0] = symT.name(symTab.idAt(i));
+                    entry[1] = symTab.symAt(i).getType2();
+                    entry[2] = symTab.symAt(i).getKind();
                     entry[3] = scope;
     
                     tData.add(entry);
@@ -1008,8 +1279,7 @@ public class CompilerVisualizer extends javax.swing.JFrame {
             data[i] = tData.get(i);
         }
 
-        symbolTable.setFont(new java.awt.Font("Nirmala UI Semilight", 0, 14)); 
-        symbolTable.setModel(new javax.swing.table.DefaultTableModel(
+        javax.swing.table.TableModel model = new javax.swing.table.DefaultTableModel(
             data,
             columnNames
         ) {
@@ -1027,36 +1297,41 @@ public class CompilerVisualizer extends javax.swing.JFrame {
             public boolean isCellEditable(int rowIndex, int columnIndex) {
                 return canEdit [columnIndex];
             }
-        });
-        symbolTable.setShowGrid(true);
-        symbolTable.setShowVerticalLines(false);
-        symbolHolder.setViewportView(symbolTable);
+        };
+        cache.finish(StageCache.SYMBOLS);
+
+        return () -> {
+            symbolTable.setFont(new java.awt.Font("Nirmala UI Semilight", 0, 14));
+            symbolTable.setModel(model);
+            symbolTable.setShowGrid(true);
+            symbolTable.setShowVerticalLines(false);
+            symbolHolder.setViewportView(symbolTable);
+        };
     }
 
     /**
      * This method generates the assembly code for the user's program
      */
-    public void buildCode() {
-        
-        try {
-            PrintWriter outFile = new PrintWriter("newcode.out");
-            Codegen.p = new PrintWriter(outFile);
-            astRoot.codeGen(Codegen.p);
-            outFile.close();
-            String fileString = new String(Files.readAllBytes(Paths.get("newcode.out")));
-            assemblyCode.setText(fileString);
-        } catch (FileNotFoundException fe) {
-            System.err.println("Unexpected error in buildCode");
-        } catch (IOException ie) {
+    public Runnable buildCode() {
+        // the code goes straight into a new document, which then replaces the one being shown
+        javax.swing.text.Document doc = new javax.swing.text.PlainDocument();
+        PrintWriter outFile = Codegen.setOutput(new DocumentWriter(doc));
+        cache.astRoot.codeGen(outFile);
+        outFile.flush();
+        if(outFile.checkError()) {
             System.err.println("Unexpected error in buildCode");
+            return null;
         }
+        cache.assembly = doc;
+        cache.finish(StageCache.CODE);
+
+        return () -> assemblyCode.setDocument(doc);
     }
 
     /**
-     * This method retrieves all the errors the user has made and shows them in a dialog box
+     * This method shows the given errors the user has made in a dialog box
      */
-    public void buildErrors() {
-        ArrayList<String> errors = ErrMsg.getList();
+    public void buildErrors(List<String> errors) {
             String[][] eData = new String[errors.size()][1];
             for(int i = 0; i<errors.size();i++) {
                 eData[i][0] = errors.get(i);
@@ -1151,6 +1426,9 @@ public class CompilerVisualizer extends javax.swing.JFrame {
     private javax.swing.JScrollPane genHolder;
     private javax.swing.JTextArea genText;
     private javax.swing.JButton grammarButton;
+    private javax.swing.JCheckBox liveCheckBox;
+    private javax.swing.JScrollPane liveErrorHolder;
+    private javax.swing.JList<String> liveErrorList;
     private javax.swing.JDialog grammarDialog;
     private javax.swing.JScrollPane grammarHolder;
     private javax.swing.JTextArea grammarText;
@@ -1200,8 +1478,18 @@ public class CompilerVisualizer extends javax.swing.JFrame {
     static final Dimension SCREEN_DIMENSION = Toolkit.getDefaultToolkit().getScreenSize();
     private int X = SCREEN_DIMENSION.width / 2; //position right in the middle of the screen
     private int Y = SCREEN_DIMENSION.height / 2;
-    private Yylex scanner;
-    private parser p;
-    private ProgramNode astRoot;
-    private StringReader sr;
+    private StageCache cache = new StageCache();
+    private StageWorker stageWorker;
+    private volatile ProgramNode shownTree;     // the AST the tree view shows, set on the Event Dispatch Thread
+    private ExecutorService stageExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "compiler stage");
+        t.setDaemon(true);
+        return t;
+    });
+    private javax.swing.JDialog progressDialog;
+    private javax.swing.JProgressBar progressBar;
+    private javax.swing.Timer progressTimer;
+    private javax.swing.Timer liveTimer;
+    private javax.swing.event.DocumentListener liveListener;
+    private static final int LIVE_DELAY = 75;      // milliseconds to wait after the last edit in live mode
 }
@@ -0,0 +1,79 @@
+import java.io.*;
+import javax.swing.text.*;
+
+/**
+ * DocumentWriter
+ *
+ * A Writer that appends everything written to it to a Swing Document. The
+ * visualizer generates code straight into a new Document and then gives it
+ * to the assembly text area, instead of building a String and having
+ * setText copy it into the area's own Document.
+ *
+ * Characters are collected in a small buffer and inserted a chunk at a
+ * time, since every insertString creates an edit and a document event.
+ */
+class DocumentWriter extends Writer {
+    private Document doc;
+    private char[] buf = new char[8192];
+    private int count = 0;
+
+    public DocumentWriter(Document doc) {
+        this.doc = doc;
+    }
+
+    public Document getDocument() {
+        return doc;
+    }
+
+    public void write(int c) throws IOException {
+        if (count == buf.length) {
+            flush();
+        }
+        buf[count++] = (char)c;
+    }
+
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (len > buf.length) {
+            flush();
+            insert(new String(cbuf, off, len));
+            return;
+        }
+        if (count + len > buf.length) {
+            flush();
+        }
+        System.arraycopy(cbuf, off, buf, count, len);
+        count += len;
+    }
+
+    public void write(String str, int off, int len) throws IOException {
+        if (len > buf.length) {
+            flush();
+            insert(str.substring(off, off + len));
+            return;
+        }
+        if (count + len > buf.length) {
+            flush();
+        }
+        str.getChars(off, off + len, buf, count);
+        count += len;
+    }
+
+    public void flush() throws IOException {
+        if (count > 0) {
+            insert(new String(buf, 0, count));
+            count = 0;
+        }
+    }
+
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void insert(String s) throws IOException {
+        try {
+            doc.insertString(doc.getLength(), s, null);
+        } catch (BadLocationException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -3,10 +3,9 @@ import java.util.*;
  * ErrMsg
  *
  * This class is used to generate warning and fatal error messages.
+ * The messages are kept in the CompilationContext of the current thread.
  */
 class ErrMsg {
-	private static boolean err = false;
-	private static ArrayList<String> listErrors = new ArrayList<String>();
 
 	/**
 	 * Generates a fatal error message.
@@ -15,8 +14,7 @@ class ErrMsg {
 	 * @param msg associated message for error
 	 */
 	static void fatal(int lineNum, int charNum, String msg) {
-		err = true;
-		listErrors.add("LINE:"+lineNum + " CHAR:" + charNum + " ***ERROR*** " + msg);
+		CompilationContext.current().fatal(lineNum, charNum, msg);
 	}
 
 	/**
@@ -26,23 +24,22 @@ class ErrMsg {
 	 * @param msg associated message for warning
 	 */
 	static void warn(int lineNum, int charNum, String msg) {
-		listErrors.add("LINE:"+lineNum + " CHAR:" + charNum + " ***WARNING*** " + msg);
+		CompilationContext.current().warn(lineNum, charNum, msg);
 	}
 
 	/**
 	 * Returns the err flag.
 	 */
 	static boolean getErr() {
-		return err;
+		return CompilationContext.current().getErr();
 	}
 
 	static ArrayList<String> getList() {
-		return listErrors;
+		return CompilationContext.current().getErrors();
 	}
 
 	static void clearErrors() {
-		listErrors.clear();
-		err = false;
+		CompilationContext.current().clearErrors();
 	}
 
 }
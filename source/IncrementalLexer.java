@@ -0,0 +1,343 @@
+import java.io.*;
+import java.util.*;
+import java_cup.runtime.*;
+import project.*;
+
+/**
+ * IncrementalLexer
+ *
+ * Keeps the tokens of a program and scans it again after an edit by
+ * rescanning only the lines around the edit.
+ *
+ * While scanning, the Yylex records a checkpoint at the start of a line when
+ * it reads the newline before it on its own: the offset, the line number,
+ * the character number and the lexical state. Tokens end at the end of their
+ * line, except for an unterminated string literal that ends in a backslash,
+ * which takes the newline after it; no checkpoint is recorded for that
+ * newline, and the line after it has none. So a checkpoint is never inside a
+ * token, and the tokens after it depend only on the text after it and on the
+ * state recorded in it. To relex, the scanner restarts from the last
+ * checkpoint before the edit. It stops as soon as it reaches, past the edit,
+ * a line start whose state matches the old checkpoint for the same text. The
+ * old tokens from there on are then spliced in after the new ones, with
+ * their line numbers shifted by the number of lines the edit added or
+ * removed.
+ *
+ * The errors and warnings found while scanning are kept with the line they
+ * are on and spliced the same way; report() hands them to a context.
+ */
+class IncrementalLexer {
+
+    /**
+     * Line start checkpoints, in order of offset. The scanner adds one every
+     * time it reads a newline.
+     */
+    static class Checkpoints {
+        int[] offset = new int[64];
+        int[] line = new int[64];       // yyline (0-based) of the line that starts here
+        int[] charNum = new int[64];
+        int[] state = new int[64];
+        int[] token = new int[64];      // index of the first token after the checkpoint
+        int size = 0;
+
+        // set by the lexer to the number of tokens scanned so far
+        int tokenCount = 0;
+        // added to the offsets the scanner reports, which start at 0 where it was started
+        int base = 0;
+
+        void add(int off, int ln, int ch, int st) {
+            if (size == offset.length) {
+                int n = size * 2;
+                offset = Arrays.copyOf(offset, n);
+                line = Arrays.copyOf(line, n);
+                charNum = Arrays.copyOf(charNum, n);
+                state = Arrays.copyOf(state, n);
+                token = Arrays.copyOf(token, n);
+            }
+            offset[size] = base + off;
+            line[size] = ln;
+            charNum[size] = ch;
+            state[size] = st;
+            token[size] = tokenCount;
+            size++;
+        }
+
+        /**
+         * Copies checkpoints [from, to) of another list onto the end of this
+         * one, shifting them by the given amounts.
+         */
+        void append(Checkpoints other, int from, int to, int offShift, int lineShift, int tokenShift) {
+            for (int i = from; i < to; i++) {
+                tokenCount = other.token[i] + tokenShift;
+                add(other.offset[i] + offShift - base, other.line[i] + lineShift,
+                    other.charNum[i], other.state[i]);
+            }
+        }
+
+        /**
+         * Returns the index of the last checkpoint at or before the offset.
+         */
+        int before(int off) {
+            int lo = 0;
+            int hi = size - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (offset[mid] <= off) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * Returns the index of the checkpoint at exactly the offset, or -1.
+         */
+        int at(int off) {
+            int i = before(off);
+            return offset[i] == off ? i : -1;
+        }
+    }
+
+    /**
+     * An error or warning reported by the scanner.
+     */
+    static class Diagnostic {
+        int line;           // 1-based, as reported
+        int charNum;
+        String msg;
+        boolean error;
+
+        Diagnostic(int line, int charNum, String msg, boolean error) {
+            this.line = line;
+            this.charNum = charNum;
+            this.msg = msg;
+            this.error = error;
+        }
+    }
+
+    /**
+     * A context that keeps the scanner's messages as Diagnostics.
+     */
+    private static class Recorder extends CompilationContext {
+        List<Diagnostic> found = new ArrayList<Diagnostic>();
+
+        Recorder(NamePool names) {
+            super(names);
+        }
+
+        void fatal(int lineNum, int charNum, String msg) {
+            found.add(new Diagnostic(lineNum, charNum, msg, true));
+        }
+
+        void warn(int lineNum, int charNum, String msg) {
+            found.add(new Diagnostic(lineNum, charNum, msg, false));
+        }
+    }
+
+    // every scan puts its names in the same pool, so that the ids in the
+    // tokens that are kept from one scan to the next stay valid; prune()
+    // replaces it when it holds too many names the tokens no longer use
+    private NamePool names = new NamePool();
+
+    // prune() starts a new pool when the names in the pool have more than
+    // twice as many characters as the ones the tokens use, plus this many
+    static final int PRUNE_SLACK = 1 << 14;
+
+    private String text = null;
+    private TokenBuffer tokens = new TokenBuffer(16, names);
+    private Checkpoints checkpoints = null;
+    private List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+
+    // how much of the text the last scan had to read (for measuring)
+    private int rescanned = 0;
+
+    /**
+     * Returns the tokens of the text given last. Every call to scan makes a
+     * new buffer, so a buffer that was returned earlier never changes.
+     */
+    TokenBuffer tokens() {
+        return tokens;
+    }
+
+    /**
+     * Returns the pool the names in the tokens are in.
+     */
+    NamePool names() {
+        return names;
+    }
+
+    /**
+     * Puts the names the tokens use into a new pool, if the pool has grown
+     * well past them. While a program is typed every partial identifier and
+     * every prefix of a string literal is scanned, and the pool keeps them
+     * all. After a new pool is started, names() returns it and the tokens
+     * that are kept are in it, but a buffer that was returned earlier keeps
+     * the old one.
+     */
+    void prune() {
+        boolean[] used = new boolean[names.size()];
+        long usedChars = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            int k = tokens.kind(i);
+            if (k == sym.ID || k == sym.STRINGLITERAL) {
+                int id = tokens.intValue(i);
+                if (!used[id]) {
+                    used[id] = true;
+                    usedChars += names.name(id).length();
+                }
+            }
+        }
+        if (names.chars() <= 2 * usedChars + PRUNE_SLACK) {
+            return;
+        }
+        names = new NamePool();
+        tokens = tokens.renamed(names);
+    }
+
+    /**
+     * Returns the number of characters the last scan read.
+     */
+    int rescanned() {
+        return rescanned;
+    }
+
+    /**
+     * Reports the errors and warnings for the text given last to the context,
+     * in the order a full scan would report them.
+     */
+    void report(CompilationContext ctx) {
+        for (Diagnostic d : diagnostics) {
+            if (d.error) {
+                ctx.fatal(d.line, d.charNum, d.msg);
+            } else {
+                ctx.warn(d.line, d.charNum, d.msg);
+            }
+        }
+    }
+
+    /**
+     * Scans the given text, reusing as much of the previous scan as it can.
+     */
+    void scan(String newText) throws IOException {
+        if (text == null) {
+            Checkpoints cps = new Checkpoints();
+            cps.add(0, 0, 1, 0);
+            TokenBuffer newTokens = new TokenBuffer(newText.length() / 4, names);
+            Recorder rec = new Recorder(names);
+            rescan(newText, 0, 0, 1, 0, cps, newTokens, rec, null, 0, 0);
+            text = newText;
+            tokens = newTokens;
+            checkpoints = cps;
+            diagnostics = rec.found;
+            return;
+        }
+        if (newText.equals(text)) {
+            rescanned = 0;
+            return;
+        }
+
+        // the edit replaced old[prefix, oldLen - suffix) with new[prefix, newLen - suffix)
+        int oldLen = text.length();
+        int newLen = newText.length();
+        int prefix = 0;
+        int max = Math.min(oldLen, newLen);
+        while (prefix < max && text.charAt(prefix) == newText.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+               && text.charAt(oldLen - 1 - suffix) == newText.charAt(newLen - 1 - suffix)) {
+            suffix++;
+        }
+
+        // restart at the last line start before the edit
+        int k = checkpoints.before(prefix);
+        Checkpoints cps = new Checkpoints();
+        cps.append(checkpoints, 0, k + 1, 0, 0, 0);
+        TokenBuffer newTokens = new TokenBuffer(tokens.size() + 16, names);
+        newTokens.append(tokens, 0, checkpoints.token[k], 0);
+        Recorder rec = new Recorder(names);
+        int restartLine = checkpoints.line[k];
+        for (Diagnostic d : diagnostics) {
+            if (d.line - 1 < restartLine) {
+                rec.found.add(d);
+            }
+        }
+
+        rescan(newText, checkpoints.offset[k], restartLine, checkpoints.charNum[k],
+               checkpoints.state[k], cps, newTokens, rec, checkpoints, newLen - suffix,
+               newLen - oldLen);
+        text = newText;
+        tokens = newTokens;
+        checkpoints = cps;
+        diagnostics = rec.found;
+    }
+
+    /**
+     * Scans newText from the checkpoint at start, adding the tokens,
+     * checkpoints and diagnostics to the given lists. If old is not null, the
+     * scan stops at the first line start at or after resyncFrom whose state
+     * matches the old checkpoint at the same text (delta is how much the text
+     * after the edit moved), and the rest of the old scan is appended.
+     */
+    private void rescan(String newText, int start, int line, int ch, int state,
+                        Checkpoints cps, TokenBuffer newTokens, Recorder rec,
+                        Checkpoints old, int resyncFrom, int delta) throws IOException {
+        Reader in = new StringReader(newText);
+        in.skip(start);
+        Yylex scanner = new Yylex(in, rec);
+        scanner.resume(line, ch, state);
+        scanner.checkpoints = cps;
+        scanner.buffer = newTokens;
+        cps.base = start;
+        int checked = cps.size;
+
+        while (true) {
+            CompilationContext.checkCancelled();
+            cps.tokenCount = newTokens.size();
+            Symbol token = scanner.next_token();     // adds the token to newTokens
+
+            // look at the line starts the scanner went past
+            for (; old != null && checked < cps.size; checked++) {
+                int off = cps.offset[checked];
+                if (off < resyncFrom) {
+                    continue;
+                }
+                int j = old.at(off - delta);
+                if (j < 0 || old.charNum[j] != cps.charNum[checked]
+                    || old.state[j] != cps.state[checked]) {
+                    continue;
+                }
+
+                // back in step with the old scan: drop what was scanned past the
+                // line start and splice the old tokens in from there
+                int lineShift = cps.line[checked] - old.line[j];
+                int tokenShift = cps.token[checked] - old.token[j];
+                newTokens.truncate(cps.token[checked]);
+                int resyncLine = old.line[j];
+                int newLine = cps.line[checked];
+                rec.found.removeIf(d -> d.line - 1 >= newLine);
+                cps.size = checked;
+                cps.base = 0;
+                cps.append(old, j, old.size, delta, lineShift, tokenShift);
+                newTokens.append(tokens, old.token[j], tokens.size(), lineShift);
+                for (Diagnostic d : diagnostics) {
+                    if (d.line - 1 >= resyncLine) {
+                        rec.found.add(lineShift == 0 ? d
+                                      : new Diagnostic(d.line + lineShift, d.charNum, d.msg, d.error));
+                    }
+                }
+                rescanned = off - start;
+                return;
+            }
+
+            if (token.sym == sym.EOF) {
+                break;
+            }
+        }
+        cps.base = 0;
+        rescanned = newText.length() - start;
+    }
+}
@@ -0,0 +1,172 @@
+import java.util.*;
+import project.*;
+
+/**
+ * IncrementalLexerFuzz
+ *
+ * Checks IncrementalLexer against full scans. Each session makes up a
+ * program with WumboGen, scans it, then makes random edits to it, scanning
+ * again after each one, the way the visualizer does while the program is
+ * typed (pruning its name pool first, as StageCache does). After every edit
+ * the tokens and the errors and warnings the lexer reports are compared
+ * with those of a fresh IncrementalLexer that scans the whole text.
+ *
+ * The edits favour the text the lexer has to get right at line starts:
+ * newlines, quotes, backslashes, comment starts, and the backslash-newline
+ * that an unterminated string literal takes with it.
+ *
+ * Usage:
+ *     java -cp ./deps:. IncrementalLexerFuzz [-seed N] [-sessions N] [-edits N]
+ *
+ * Prints the first edit that gives different tokens or messages in each
+ * session that has one, and the number of such sessions; exits with 1 if
+ * there were any.
+ */
+public class IncrementalLexerFuzz {
+
+    // what the edits insert, besides single random characters
+    private static final String[] PIECES = {
+        "\n", "\n\n", "\"", "\\", "\\\n", "\"abc\\\n", "\"a\\qb", "\"tab\\t\"", "//", "#", " ",
+        "x", "int y;", "bool b;\n", "{", "}", "(", ")", ";", "==", "<=", "+", "-", "--", "++",
+        "0", "99999999999", "@", "$", "cout << \"s\";\n", "cin >> x;", "if (a) {\n", "}\n",
+        "struct S { int f; };\n", "true", "repeat"
+    };
+
+    private final Random rnd;
+    private final int edits;
+
+    IncrementalLexerFuzz(long seed, int edits) {
+        this.rnd = new Random(seed);
+        this.edits = edits;
+    }
+
+    /**
+     * Runs one session, and returns a description of the first edit after
+     * which the incremental scan differs from the full one, or null.
+     */
+    String session(long seed) throws Exception {
+        WumboGen gen = new WumboGen(seed);
+        gen.functions = 1 + rnd.nextInt(4);
+        gen.stmts = 2 + rnd.nextInt(8);
+        gen.strings = 0.6;
+        gen.lexErrors = 0.1;
+        String text = gen.generate();
+
+        IncrementalLexer lexer = new IncrementalLexer();
+        lexer.scan(text);
+        for (int e = 0; e < edits; e++) {
+            String before = text;
+            text = edit(text);
+            lexer.prune();
+            lexer.scan(text);
+
+            IncrementalLexer full = new IncrementalLexer();
+            full.scan(text);
+            String diff = compare(lexer, full);
+            if (diff != null) {
+                return "edit " + e + ": " + diff + "\n--- before ---\n" + before
+                       + "\n--- after ---\n" + text;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the text with a random part of it replaced.
+     */
+    private String edit(String text) {
+        int at = text.isEmpty() ? 0 : rnd.nextInt(text.length() + 1);
+        int remove = rnd.nextInt(3) == 0 ? Math.min(rnd.nextInt(8), text.length() - at) : 0;
+        String insert;
+        int r = rnd.nextInt(10);
+        if (r < 6) {
+            insert = PIECES[rnd.nextInt(PIECES.length)];
+        } else if (r < 9) {
+            insert = String.valueOf((char) (' ' + rnd.nextInt(95)));
+        } else {
+            insert = "";
+            remove = Math.min(1 + rnd.nextInt(40), text.length() - at);
+        }
+        return text.substring(0, at) + insert + text.substring(at + remove);
+    }
+
+    /**
+     * Returns what differs between the tokens and messages of the two
+     * lexers, or null if nothing does.
+     */
+    private static String compare(IncrementalLexer a, IncrementalLexer b) {
+        TokenBuffer ta = a.tokens();
+        TokenBuffer tb = b.tokens();
+        for (int i = 0; i < Math.max(ta.size(), tb.size()); i++) {
+            if (i >= ta.size() || i >= tb.size()) {
+                return "token " + i + ": " + (i < ta.size() ? describe(ta, i) : "none")
+                       + " vs " + (i < tb.size() ? describe(tb, i) : "none");
+            }
+            if (!describe(ta, i).equals(describe(tb, i))) {
+                return "token " + i + ": " + describe(ta, i) + " vs " + describe(tb, i);
+            }
+        }
+
+        CompilationContext ca = new CompilationContext(a.names());
+        a.report(ca);
+        CompilationContext cb = new CompilationContext(b.names());
+        b.report(cb);
+        if (!ca.getErrors().equals(cb.getErrors()) || ca.getErr() != cb.getErr()) {
+            return "messages " + ca.getErrors() + " vs " + cb.getErrors();
+        }
+        return null;
+    }
+
+    private static String describe(TokenBuffer t, int i) {
+        int k = t.kind(i);
+        String v = "";
+        if (k == sym.ID || k == sym.STRINGLITERAL) {
+            v = " " + t.string(i);
+        } else if (k == sym.INTLITERAL) {
+            v = " " + t.intValue(i);
+        }
+        return k + v + " at " + t.line(i) + ":" + t.col(i);
+    }
+
+    private static void usage() {
+        System.err.println("usage: java IncrementalLexerFuzz [-seed N] [-sessions N] [-edits N]");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws Exception {
+        long seed = 1;
+        int sessions = 1000;
+        int edits = 12;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String opt = args[i];
+                if (++i == args.length) {
+                    usage();
+                }
+                if (opt.equals("-seed")) {
+                    seed = Long.parseLong(args[i]);
+                } else if (opt.equals("-sessions")) {
+                    sessions = Integer.parseInt(args[i]);
+                } else if (opt.equals("-edits")) {
+                    edits = Integer.parseInt(args[i]);
+                } else {
+                    usage();
+                }
+            }
+        } catch (NumberFormatException nfe) {
+            usage();
+        }
+
+        IncrementalLexerFuzz fuzz = new IncrementalLexerFuzz(seed, edits);
+        int bad = 0;
+        for (int s = 0; s < sessions; s++) {
+            String diff = fuzz.session(seed + s);
+            if (diff != null) {
+                bad++;
+                System.out.println("session " + s + ", " + diff);
+            }
+        }
+        System.out.println(sessions + " sessions of " + edits + " edits, " + bad + " mismatched");
+        System.exit(bad == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * JLexScaling
+ *
+ * Times JLex on a big synthetic spec with 1, 2, 4, ... up to N threads, to
+ * show whether the parallel subset construction and equivalence scans in
+ * JLex (see CUtility.parallel_for in deps/JLex/Main.java) pay for
+ * themselves. JLex runs its parallel loops on the ForkJoinPool it is called
+ * from, so each run is made on a pool of its own with the given number of
+ * threads. The scanner generated on every run must be the same, byte for
+ * byte, as the one generated with one thread.
+ *
+ * The spec has -keywords keywords (520 by default), made up from -seed, and
+ * as many operators of one to three characters, followed by rules for
+ * identifiers, numbers, whitespace and any other character, the way a
+ * language's spec has them. The keywords and the identifier rule overlap,
+ * which is what makes the DFA big.
+ *
+ * Usage (runs JLex -w times, 3 by default, with each count of threads to
+ * warm up the JIT, then prints the best of -r runs, 3 by default, for each
+ * count, and the speedup over one thread):
+ *     java -cp ./deps:. JLexScaling [-j N] [-keywords N] [-seed N] [-w N] [-r N] [-o spec]
+ *
+ * -o keeps the spec in the given file instead of a temporary one, so it can
+ * be given to JLex.Main by hand.
+ */
+public class JLexScaling {
+
+    private static final String OPERATOR_CHARS = "+-*/<>=!&|%^~?:";
+
+    /**
+     * Returns a spec with the given number of keywords and operators.
+     */
+    static String spec(int keywords, long seed) {
+        Random rnd = new Random(seed);
+        Set<String> words = new LinkedHashSet<String>();
+        while (words.size() < keywords) {
+            StringBuilder w = new StringBuilder();
+            int len = 3 + rnd.nextInt(8);
+            for (int i = 0; i < len; i++) {
+                w.append((char) ('a' + rnd.nextInt(26)));
+            }
+            words.add(w.toString());
+        }
+        int maxOperators = OPERATOR_CHARS.length() * (1 + OPERATOR_CHARS.length()
+                                                      * (1 + OPERATOR_CHARS.length()));
+        Set<String> operators = new LinkedHashSet<String>();
+        while (operators.size() < Math.min(keywords, maxOperators)) {
+            StringBuilder op = new StringBuilder();
+            int len = 1 + rnd.nextInt(3);
+            for (int i = 0; i < len; i++) {
+                op.append(OPERATOR_CHARS.charAt(rnd.nextInt(OPERATOR_CHARS.length())));
+            }
+            operators.add(op.toString());
+        }
+
+        StringBuilder s = new StringBuilder();
+        s.append("// made by JLexScaling: ").append(keywords).append(" keywords, seed ")
+         .append(seed).append("\n");
+        s.append("%%\n");
+        s.append("%class Synth\n");
+        s.append("%type int\n");
+        s.append("%eofval{\n    return -1;\n%eofval}\n");
+        s.append("%line\n");
+        s.append("%%\n");
+        int token = 0;
+        for (String w : words) {
+            s.append('"').append(w).append("\"  { return ").append(token++).append("; }\n");
+        }
+        for (String op : operators) {
+            s.append('"').append(op).append("\"  { return ").append(token++).append("; }\n");
+        }
+        s.append("[a-zA-Z_][a-zA-Z0-9_]*  { return ").append(token++).append("; }\n");
+        s.append("[0-9]+  { return ").append(token++).append("; }\n");
+        s.append("[ \\t\\n]+  { }\n");
+        s.append(".  { return ").append(token).append("; }\n");
+        return s.toString();
+    }
+
+    /**
+     * Runs JLex on the spec on a pool with the given number of threads, and
+     * returns how long it took. What JLex prints is thrown away.
+     */
+    static long generate(Path spec, int threads) throws Exception {
+        PrintStream out = System.out;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            System.setOut(new PrintStream(new ByteArrayOutputStream()));
+            long start = System.nanoTime();
+            pool.submit(() -> {
+                JLex.Main.main(new String[] {spec.toString()});
+                return null;
+            }).get();
+            return System.nanoTime() - start;
+        } finally {
+            System.setOut(out);
+            pool.shutdown();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: java JLexScaling [-j N] [-keywords N] [-seed N] [-w N] [-r N] [-o spec]");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int keywords = 520;
+        long seed = 1;
+        int runs = 3;
+        int warmups = 3;
+        String specFile = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String opt = args[i];
+                if (++i == args.length) {
+                    usage();
+                }
+                if (opt.equals("-j")) {
+                    maxThreads = Integer.parseInt(args[i]);
+                } else if (opt.equals("-keywords")) {
+                    keywords = Integer.parseInt(args[i]);
+                } else if (opt.equals("-seed")) {
+                    seed = Long.parseLong(args[i]);
+                } else if (opt.equals("-w")) {
+                    warmups = Integer.parseInt(args[i]);
+                } else if (opt.equals("-r")) {
+                    runs = Integer.parseInt(args[i]);
+                } else if (opt.equals("-o")) {
+                    specFile = args[i];
+                } else {
+                    usage();
+                }
+            }
+        } catch (NumberFormatException nfe) {
+            usage();
+        }
+        if (maxThreads < 1 || keywords < 1 || runs < 1 || warmups < 0) {
+            usage();
+        }
+
+        Path spec;
+        if (specFile != null) {
+            spec = Paths.get(specFile);
+        } else {
+            spec = Files.createTempFile("synth", ".jlex");
+            spec.toFile().deleteOnExit();
+        }
+        Files.write(spec, spec(keywords, seed).getBytes());
+        Path output = Paths.get(spec + ".java");
+        output.toFile().deleteOnExit();
+
+        List<Integer> counts = new ArrayList<Integer>();
+        for (int n = 1; n < maxThreads; n *= 2) {
+            counts.add(n);
+        }
+        counts.add(maxThreads);
+
+        // a few times with each count first, so the JIT has compiled JLex
+        // (both its sequential and its parallel paths) before timing
+        for (int w = 0; w < warmups; w++) {
+            for (int n : counts) {
+                generate(spec, n);
+            }
+        }
+        System.out.println(spec + ": " + keywords + " keywords, "
+                           + Runtime.getRuntime().availableProcessors() + " processor(s)");
+        System.out.println("threads       best ms  speedup");
+        byte[] expected = null;
+        long base = 0;
+        for (int n : counts) {
+            long best = Long.MAX_VALUE;
+            for (int r = 0; r < runs; r++) {
+                best = Math.min(best, generate(spec, n));
+                byte[] scanner = Files.readAllBytes(output);
+                if (expected == null) {
+                    expected = scanner;
+                } else if (!Arrays.equals(expected, scanner)) {
+                    System.out.println("the scanner made with " + n
+                                       + " threads differs from the one made with 1");
+                    System.exit(1);
+                }
+            }
+            if (n == 1) {
+                base = best;
+            }
+            System.out.println(String.format("%7d  %12.1f  %6.2fx", n, best / 1e6,
+                                             (double) base / best));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ * MappedSourceReader
+ *
+ * A Reader over a source file that maps the file into memory a window at a
+ * time and decodes its bytes straight into the array the caller reads into.
+ * The file is never held in the heap as a whole, as bytes or as a String, so
+ * the scanner can read a file of any size with nothing but its own buffer.
+ *
+ * The file is decoded with the default charset, and bytes that are not valid
+ * in it are replaced, the same way FileReader reads a file.
+ */
+class MappedSourceReader extends Reader {
+    // how much of the file is mapped at once
+    static final int WINDOW = 1 << 22;
+
+    // files smaller than this are cheaper to read than to map
+    static final int MIN_MAPPED = 1 << 16;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    // a character that did not fit in the array it was decoded for (the
+    // second half of a surrogate pair), handed out by the next read
+    private final CharBuffer carry = CharBuffer.allocate(2);
+    private boolean flushed = false;
+
+    public MappedSourceReader(Path path) throws IOException {
+        this(path, Charset.defaultCharset());
+    }
+
+    public MappedSourceReader(Path path, Charset cs) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        decoder = cs.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        carry.flip();
+        try {
+            size = channel.size();
+            map(0);
+        } catch (IOException | RuntimeException e) {
+            // nobody else has the channel to close
+            try {
+                channel.close();
+            } catch (IOException ce) {
+                e.addSuppressed(ce);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a Reader for the given source file: a MappedSourceReader if the
+     * file is big enough for mapping it to pay, a buffered FileReader if not.
+     */
+    static Reader open(Path path) throws IOException {
+        if (Files.size(path) < MIN_MAPPED) {
+            return new BufferedReader(new FileReader(path.toFile()));
+        }
+        return new MappedSourceReader(path);
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+    }
+
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (carry.hasRemaining() && out.hasRemaining()) {
+            out.put(carry.get());
+        }
+
+        while (out.position() == off) {
+            if (flushed) {
+                return -1;
+            }
+            boolean last = windowStart + window.limit() == size;
+            CoderResult r = decoder.decode(window, out, last);
+            if (r.isError()) {
+                r.throwException();
+            }
+            if (out.position() > off) {
+                break;
+            }
+            if (r.isOverflow()) {
+                // out has room for one char, and the next one is a pair
+                carry.clear();
+                decoder.decode(window, carry, last);
+                carry.flip();
+                out.put(carry.get());
+            } else if (!last) {
+                // the window is used up, or ends in the middle of a char
+                map(windowStart + window.position());
+            } else {
+                decoder.flush(out);
+                flushed = true;
+            }
+        }
+        return out.position() - off;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.*;
+
+/**
+ * NamePool
+ *
+ * Gives every distinct identifier or string literal spelling in a
+ * compilation a small int id, numbered from 0 in the order they are first
+ * seen, and keeps one String for each. The scanner puts every ID and
+ * STRINGLITERAL it finds into the pool of its CompilationContext, straight
+ * from its input buffer, so a name that occurs many times is only made into
+ * a String once. The tokens, the IdNodes and the SymTables carry and look up
+ * names by their ids.
+ *
+ * A string literal is kept with its quotes, so it never gets the same id as
+ * an identifier.
+ */
+class NamePool {
+    // ids every pool gives out the same way
+    static final int MAIN = 0;      // main
+    static final int SCOPE = 1;     // $scope, the entry that names a scope in a SymTable
+
+    private String[] names = new String[64];
+    private int size = 0;
+    private long chars = 0;
+
+    // open addressing table of id + 1 (0 is an empty slot)
+    private int[] table = new int[128];
+
+    NamePool() {
+        id("main");
+        id("$scope");
+    }
+
+    /**
+     * Returns the number of names in the pool.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of characters in the names in the pool.
+     */
+    long chars() {
+        return chars;
+    }
+
+    /**
+     * Returns the name with the given id.
+     */
+    String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the id of the given name, adding it to the pool if it is not
+     * there yet.
+     */
+    int id(String s) {
+        int h = hash(s);
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int e = table[i];
+            if (e == 0) {
+                return add(s, i);
+            }
+            if (names[e - 1].equals(s)) {
+                return e - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the name made of the len characters of buf starting
+     * at off, adding it to the pool if it is not there yet. A String is only
+     * made for a name the pool has not seen before.
+     */
+    int id(char[] buf, int off, int len) {
+        int h = 0;
+        for (int k = 0; k < len; k++) {
+            h = 31 * h + buf[off + k];
+        }
+        h = spread(h);
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int e = table[i];
+            if (e == 0) {
+                return add(new String(buf, off, len), i);
+            }
+            if (matches(names[e - 1], buf, off, len)) {
+                return e - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the given name, or -1 if it is not in the pool.
+     */
+    int find(String s) {
+        int h = hash(s);
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int e = table[i];
+            if (e == 0) {
+                return -1;
+            }
+            if (names[e - 1].equals(s)) {
+                return e - 1;
+            }
+        }
+    }
+
+    private int add(String s, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = s;
+        table[slot] = size + 1;
+        size++;
+        chars += s.length();
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hash(names[id]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = id + 1;
+        }
+    }
+
+    private static boolean matches(String s, char[] buf, int off, int len) {
+        if (s.length() != len) {
+            return false;
+        }
+        for (int k = 0; k < len; k++) {
+            if (s.charAt(k) != buf[off + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // String.hashCode, so that id(String) and id(char[], int, int) agree
+    private static int hash(String s) {
+        return spread(s.hashCode());
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
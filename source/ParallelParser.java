@@ -0,0 +1,215 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import project.*;
+
+/**
+ * ParallelParser
+ *
+ * Parses a big program on several threads. The top-level declarations of a
+ * Wumbo program end at a ';' or '}' outside of any braces, so the tokens can
+ * be cut into chunks of whole declarations before anything is parsed. Each
+ * chunk is parsed on its own by its own parser, and the declarations of all
+ * of the chunks are put together into one program.
+ *
+ * If a chunk does not parse (the program has a syntax error, or the braces
+ * do not balance) nothing the chunks reported is kept and the whole program
+ * is parsed again by one parser, so the errors are exactly the ones the
+ * sequential parser reports. When every chunk parses, the program is the
+ * one the sequential parser builds: the grammar has one parse for each
+ * sequence of declarations, and a declaration parses the same whatever comes
+ * before or after it.
+ *
+ * Usage (prints how parsing the files scales with the number of threads):
+ *     java -cp ./deps:. ParallelParser [-j N] file ...
+ */
+class ParallelParser {
+    // the fewest tokens in a chunk (the last one may have fewer)
+    static final int GRAIN = 1 << 13;
+
+    /**
+     * Returns the ends (exclusive) of the chunks the tokens are cut into, or
+     * null if they cannot be cut (there are fewer than two chunks, or the
+     * braces do not balance).
+     */
+    static int[] split(TokenBuffer tokens, int grain) {
+        int n = tokens.size();
+        List<Integer> ends = new ArrayList<Integer>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+            int k = tokens.kind(i);
+            boolean end = false;
+            if (k == sym.LCURLY) {
+                depth++;
+            } else if (k == sym.RCURLY) {
+                if (--depth < 0) {
+                    return null;
+                }
+                // a struct declaration goes on to the ';' after its '}'
+                end = depth == 0 && (i + 1 == n || tokens.kind(i + 1) != sym.SEMICOLON);
+            } else if (k == sym.SEMICOLON) {
+                end = depth == 0;
+            }
+            if (end && i + 1 - start >= grain && n - (i + 1) >= grain) {
+                ends.add(i + 1);
+                start = i + 1;
+            }
+        }
+        if (depth != 0 || ends.isEmpty()) {
+            return null;
+        }
+        ends.add(n);
+
+        int[] result = new int[ends.size()];
+        for (int c = 0; c < result.length; c++) {
+            result[c] = ends.get(c);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the tokens, on the current ForkJoinPool if the calling thread
+     * is in one and on the common pool if not, and returns the program.
+     * Syntax errors are reported to the current context, the same way
+     * parser.parse reports them, and then the parser's exception is thrown.
+     * arrayLists is handed to every parser (see parser.arrayLists).
+     */
+    static ProgramNode parse(TokenBuffer tokens, boolean arrayLists) throws Exception {
+        int[] ends = split(tokens, GRAIN);
+        if (ends != null) {
+            List<DeclNode> decls = parseChunks(tokens, ends, arrayLists);
+            if (decls != null) {
+                return new ProgramNode(new DeclListNode(decls));
+            }
+        }
+        parser p = new parser(tokens.cursor());
+        p.arrayLists = arrayLists;
+        return (ProgramNode) p.parse().value;
+    }
+
+    /**
+     * Parses every chunk and returns all of their declarations in order, or
+     * null if a chunk did not parse.
+     */
+    private static List<DeclNode> parseChunks(TokenBuffer tokens, int[] ends, boolean arrayLists) {
+        NamePool names = CompilationContext.current().names();
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<ForkJoinTask<List<DeclNode>>> tasks = new ArrayList<ForkJoinTask<List<DeclNode>>>();
+        for (int c = 0; c < ends.length; c++) {
+            int from = c == 0 ? 0 : ends[c - 1];
+            int to = ends[c];
+            tasks.add(ForkJoinTask.adapt(() -> {
+                if (failed.get()) {
+                    return null;
+                }
+                // the messages go to a context of their own and are dropped
+                CompilationContext previous = new CompilationContext(names).bind();
+                try {
+                    List<DeclNode> chunk = new ArrayList<DeclNode>();
+                    parser p = new parser(tokens.cursor(from, to));
+                    p.arrayLists = arrayLists;
+                    p.quiet = true;
+                    p.declConsumer = chunk::add;
+                    p.parse();
+                    return chunk;
+                } catch (Exception e) {
+                    failed.set(true);
+                    return null;
+                } finally {
+                    CompilationContext.restore(previous);
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        if (failed.get()) {
+            return null;
+        }
+
+        int total = 0;
+        for (ForkJoinTask<List<DeclNode>> t : tasks) {
+            total += t.join().size();
+        }
+        List<DeclNode> decls = arrayLists ? new ArrayList<DeclNode>(total) : new LinkedList<DeclNode>();
+        for (ForkJoinTask<List<DeclNode>> t : tasks) {
+            decls.addAll(t.join());
+        }
+        return decls;
+    }
+
+    private static void usage() {
+        System.err.println("usage: java ParallelParser [-j N] file ...");
+        System.exit(2);
+    }
+
+    /**
+     * Parses each file with 1, 2, 4, ... up to N threads (the number of
+     * processors by default) and prints the best of five times for each,
+     * next to the time of the sequential parser.
+     */
+    public static void main(String[] args) throws Exception {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        List<String> files = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-j")) {
+                if (++i == args.length) {
+                    usage();
+                }
+                try {
+                    maxThreads = Integer.parseInt(args[i]);
+                } catch (NumberFormatException nfe) {
+                    usage();
+                }
+                if (maxThreads < 1) {
+                    usage();
+                }
+            } else if (args[i].startsWith("-")) {
+                usage();
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            usage();
+        }
+
+        for (String file : files) {
+            TokenBuffer tokens = new TokenBuffer();
+            try (Reader in = MappedSourceReader.open(Paths.get(file))) {
+                new Yylex(in).scanInto(tokens);
+            }
+            int[] ends = split(tokens, GRAIN);
+            System.out.println(file + ": " + tokens.size() + " tokens, "
+                               + (ends == null ? 1 : ends.length) + " chunk(s)");
+
+            // once each first, so the JIT has compiled both before timing
+            new parser(tokens.cursor()).parse();
+            parse(tokens, false);
+
+            long base = best(() -> new parser(tokens.cursor()).parse());
+            System.out.println(String.format("  sequential  %9.1f ms", base / 1e6));
+            for (int n = 1; ; n = Math.min(n * 2, maxThreads)) {
+                ForkJoinPool pool = new ForkJoinPool(n);
+                long t = pool.submit(() -> best(() -> parse(tokens, false))).get();
+                pool.shutdown();
+                System.out.println(String.format("  %2d threads  %9.1f ms  %5.2fx",
+                                                 n, t / 1e6, (double) base / t));
+                if (n == maxThreads) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static long best(Callable<?> parse) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            parse.call();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
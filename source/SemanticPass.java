@@ -0,0 +1,152 @@
+import java.util.*;
+
+/**
+ * SemanticPass
+ *
+ * The state of ProgramNode.check, which does the work of analyze,
+ * nameAnalysis (with computeOffsets) and typeCheck in a single walk over the
+ * declarations and statements. At each declaration and statement the three
+ * passes are done one after the other, each with its own symbol table, so
+ * every node is reached once instead of three times.
+ *
+ * The messages each pass reports are kept apart and put into the context in
+ * the order the separate passes report them: all of analyze's, then, if
+ * analyze reported no error, all of nameAnalysis's and typeCheck's. Once
+ * analyze has reported an error the other two are no longer done, since
+ * their messages would be dropped.
+ *
+ * Each node hands the bodies of functions and statements to then instead
+ * of checking them itself, and ProgramNode.check does it all with run, so
+ * the walk does not run out of stack on deeply nested statements (see
+ * WorkStack).
+ */
+class SemanticPass {
+    // the passes, in the order their messages are reported
+    static final int ANALYZE = 0;
+    static final int NAMES = 1;
+    static final int TYPES = 2;
+
+    // the table analyze fills in (the one the visualizer shows), and the
+    // table nameAnalysis uses
+    SymTable display = new SymTable();
+    SymTable symTab = new SymTable();
+
+    // the return type of the function being checked
+    Type returnType = null;
+
+    // true while the declarations checked are locals that get a place in the
+    // frame (computeOffsets does not give one to the locals of a repeat
+    // loop), and the offset the next one gets
+    boolean offsets = false;
+    int offset = 0;
+
+    private final CompilationContext ctx;
+    private final CompilationContext scratch;
+
+    // the messages each pass reported, and whether any was an error
+    private final List<List<String>> messages = new ArrayList<List<String>>();
+    private final boolean[] failed = new boolean[TYPES + 1];
+    private int phase = ANALYZE;
+
+    // the parts of the walk still to do
+    private final WorkStack steps = new WorkStack();
+
+    /**
+     * Makes a pass that reports to the current context.
+     */
+    SemanticPass() {
+        ctx = CompilationContext.current();
+        scratch = new CompilationContext(ctx.names());
+        for (int p = ANALYZE; p <= TYPES; p++) {
+            messages.add(new ArrayList<String>());
+        }
+    }
+
+    /**
+     * Binds the context the passes report to while the walk is going on,
+     * and returns the one that was bound before (see CompilationContext.bind).
+     */
+    CompilationContext bind() {
+        return scratch.bind();
+    }
+
+    /**
+     * Checks the given part of the program after the parts handed to then
+     * before it, and before the nodes that follow the current one (see
+     * WorkStack.then).
+     */
+    void then(Runnable step) {
+        steps.then(step);
+    }
+
+    /**
+     * Checks the given part of the program and everything it hands to then.
+     */
+    void run(Runnable first) {
+        steps.run(first);
+    }
+
+    /**
+     * Starts doing the given pass's part of the current node: files the
+     * messages reported so far under the pass that reported them, and
+     * returns true if the given pass is to be done.
+     */
+    boolean enter(int p) {
+        if (!scratch.getErrors().isEmpty()) {
+            messages.get(phase).addAll(scratch.getErrors());
+            failed[phase] |= scratch.getErr();
+            scratch.clearErrors();
+        }
+        phase = p;
+        return p == ANALYZE || !failed[ANALYZE];
+    }
+
+    /**
+     * Opens a new scope in both tables, for the body of a statement.
+     */
+    void enterScope() {
+        if (enter(ANALYZE)) {
+            display.addScope();
+        }
+        if (enter(NAMES)) {
+            symTab.addScope();
+        }
+    }
+
+    /**
+     * Closes the scope enterScope opened, giving it the given name in the
+     * table analyze fills in.
+     */
+    void exitScope(String name) {
+        try {
+            if (enter(ANALYZE)) {
+                display.addDecl(NamePool.SCOPE, new Sym(name));
+                display.removeScope();
+            }
+            if (enter(NAMES)) {
+                symTab.removeScope();
+            }
+        } catch (EmptySymTableException ee) {
+            System.err.println("Unexpected EmptySymTableException in SemanticPass.exitScope");
+            System.exit(-1);
+        } catch (DuplicateSymException de) {
+            System.err.println("Unexpected exception in SemanticPass.exitScope");
+        }
+    }
+
+    /**
+     * Puts the messages into the context the pass was made in, in the order
+     * the separate passes report them, and returns the table analyze filled
+     * in.
+     */
+    SymTable finish() {
+        enter(ANALYZE);
+        for (int p = ANALYZE; p <= TYPES; p++) {
+            ctx.replay(messages.get(p), failed[p]);
+            if (failed[ANALYZE]) {
+                break;
+            }
+        }
+        return display;
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * SemanticPassCheck
+ *
+ * Checks that ProgramNode.check, which does the work of analyze,
+ * nameAnalysis and typeCheck in one walk (see SemanticPass), gives what the
+ * three passes give when they are run one after the other, the way the
+ * compiler ran them before: analyze, then nameAnalysis and typeCheck only if
+ * analyze reported no error.
+ *
+ * Each program is scanned and parsed twice, each time in a context of its
+ * own, and one tree is checked each way. The two must report the same
+ * messages, in the same order, and return the same table (the one the
+ * visualizer shows); if there is no error, the code generated from the two
+ * trees must be the same too, which covers the offsets name analysis gives.
+ * If either way throws, the other must throw the same exception.
+ *
+ * Usage:
+ *     java -cp ./deps:. SemanticPassCheck [-seed N] [-programs N] [file ...]
+ *
+ * Without files, -programs programs (500 by default) are made up by
+ * WumboGen, with and without type errors and struct fields. Programs that
+ * do not scan or parse are skipped. Prints every program that differs and
+ * how, and the number of them; exits with 1 if there were any.
+ */
+public class SemanticPassCheck {
+
+    /**
+     * Returns what checking the program one way gives, as text, or null if
+     * it does not scan or parse.
+     */
+    static String outcome(String text, boolean fused) {
+        CompilationContext ctx = new CompilationContext();
+        CompilationContext previous = ctx.bind();
+        StringBuilder b = new StringBuilder();
+        try {
+            TokenBuffer tokens = new TokenBuffer();
+            new Yylex(new StringReader(text)).scanInto(tokens);
+            if (ctx.getErr()) {
+                return null;
+            }
+            ProgramNode root;
+            try {
+                root = (ProgramNode) new parser(tokens.cursor()).parse().value;
+            } catch (Exception e) {
+                return null;
+            }
+            if (ctx.getErr()) {
+                return null;
+            }
+            ctx.clearErrors();
+
+            SymTable symT = null;
+            try {
+                if (fused) {
+                    symT = root.check();
+                } else {
+                    symT = root.analyze();
+                    if (!ctx.getErr()) {
+                        root.nameAnalysis();
+                        root.typeCheck();
+                    }
+                }
+            } catch (RuntimeException re) {
+                b.append("threw ").append(re).append('\n');
+            }
+            for (String msg : ctx.getErrors()) {
+                b.append(msg).append('\n');
+            }
+            if (symT == null) {
+                return b.toString();
+            }
+
+            b.append("table\n");
+            table(b, symT, symT.getList());
+            b.append("garbage\n");
+            table(b, symT, symT.getGarbage());
+
+            if (!ctx.getErr()) {
+                CodeBuffer code = new CodeBuffer();
+                try {
+                    PrintWriter out = Codegen.setOutput(code);
+                    root.codeGen(out);
+                    out.flush();
+                    b.append(code);
+                } catch (RuntimeException re) {
+                    b.append("codeGen threw ").append(re).append('\n');
+                }
+            }
+            return b.toString();
+        } catch (IOException ie) {
+            throw new UncheckedIOException(ie);
+        } finally {
+            CompilationContext.restore(previous);
+        }
+    }
+
+    private static void table(StringBuilder b, SymTable symT, List<SymTable.Scope> scopes) {
+        for (SymTable.Scope scope : scopes) {
+            for (int i = 0; i < scope.size(); i++) {
+                Sym sym = scope.symAt(i);
+                b.append("  ").append(symT.name(scope.idAt(i))).append(' ').append(sym)
+                 .append(' ').append(sym.getKind()).append('\n');
+            }
+            b.append("  --\n");
+        }
+    }
+
+    /**
+     * Returns the first line at which the two outcomes differ, with the
+     * lines themselves, or null if they are the same.
+     */
+    static String compare(String fused, String separate) {
+        if (fused.equals(separate)) {
+            return null;
+        }
+        String[] f = fused.split("\n", -1);
+        String[] s = separate.split("\n", -1);
+        int i = 0;
+        while (i < f.length && i < s.length && f[i].equals(s[i])) {
+            i++;
+        }
+        return "line " + (i + 1) + ": check gives \"" + (i < f.length ? f[i] : "")
+               + "\", the three passes \"" + (i < s.length ? s[i] : "") + "\"";
+    }
+
+    private static void usage() {
+        System.err.println("usage: java SemanticPassCheck [-seed N] [-programs N] [file ...]");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws Exception {
+        long seed = 1;
+        int programs = 500;
+        List<String> files = new ArrayList<String>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-seed") || args[i].equals("-programs")) {
+                    if (i + 1 == args.length) {
+                        usage();
+                    }
+                    if (args[i].equals("-seed")) {
+                        seed = Long.parseLong(args[++i]);
+                    } else {
+                        programs = Integer.parseInt(args[++i]);
+                    }
+                } else if (args[i].startsWith("-")) {
+                    usage();
+                } else {
+                    files.add(args[i]);
+                }
+            }
+        } catch (NumberFormatException nfe) {
+            usage();
+        }
+
+        List<String> names = new ArrayList<String>();
+        List<String> texts = new ArrayList<String>();
+        if (files.isEmpty()) {
+            for (int p = 0; p < programs; p++) {
+                WumboGen gen = new WumboGen(seed + p);
+                gen.functions = 1 + p % 8;
+                gen.structs = p % 3 == 0 ? 0 : p % 5;
+                gen.typeErrors = (p % 4) * 0.05;
+                names.add("seed " + (seed + p));
+                texts.add(gen.generate());
+            }
+        } else {
+            for (String file : files) {
+                names.add(file);
+                texts.add(new String(Files.readAllBytes(Paths.get(file))));
+            }
+        }
+
+        int checked = 0;
+        int skipped = 0;
+        int differ = 0;
+        for (int p = 0; p < texts.size(); p++) {
+            String fused = outcome(texts.get(p), true);
+            if (fused == null) {
+                skipped++;
+                continue;
+            }
+            checked++;
+            String diff = compare(fused, outcome(texts.get(p), false));
+            if (diff != null) {
+                differ++;
+                System.out.println(names.get(p) + ": " + diff);
+            }
+        }
+        System.out.println(checked + " programs checked, " + skipped + " skipped, " + differ + " differ");
+        System.exit(differ == 0 ? 0 : 1);
+    }
+}
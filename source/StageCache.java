@@ -0,0 +1,147 @@
+import java.util.*;
+
+/**
+ * StageCache
+ *
+ * Keeps the results of the compiler stages for the program that was
+ * compiled last: the token stream, the AST, the symbol table and the
+ * generated assembly, together with the messages each stage reported.
+ * The token stream is keyed by a hash of the program text, and the results
+ * of the later stages by a hash of the token stream. When the text changes
+ * only the tokens are dropped, and the stages start over with a new
+ * CompilationContext. If scanning the new text gives the same tokens (the
+ * edit was inside a comment, or whitespace at the end of a line), the AST,
+ * symbol table and assembly are kept; otherwise they are dropped too.
+ *
+ * The stages run on a background thread, which must bind the context before
+ * running one. Only one stage runs at a time.
+ */
+class StageCache {
+    // the stages, in the order they run
+    static final int TOKENS = 0;
+    static final int TREE = 1;
+    static final int SYMBOLS = 2;
+    static final int CODE = 3;
+    private static final int NUM_STAGES = 4;
+
+    // the program the results belong to
+    private String text = null;
+    private int hash = 0;
+
+    // the token stream the results of the later stages belong to
+    private TokenBuffer keyTokens = null;
+    private int tokenHash = 0;
+
+    // the context the stages for this program report to
+    private CompilationContext ctx;
+
+    // whether each stage has run, and what it reported
+    private boolean[] done = new boolean[NUM_STAGES];
+    private boolean[] failed = new boolean[NUM_STAGES];
+    private List<List<String>> messages = new ArrayList<List<String>>();
+
+    // keeps the tokens of the last text, so that after an edit only the
+    // lines around it have to be scanned again
+    final IncrementalLexer lexer = new IncrementalLexer();
+
+    // results of the stages
+    TokenBuffer tokens;
+    ProgramNode astRoot;
+    SymTable symT;
+    javax.swing.text.Document assembly;
+
+    StageCache() {
+        for (int i = 0; i < NUM_STAGES; i++) {
+            messages.add(new ArrayList<String>());
+        }
+        ctx = new CompilationContext(lexer.names());
+    }
+
+    /**
+     * Makes the given text the program being compiled. If it differs from
+     * the text the tokens belong to, they are dropped, the lexer's name pool
+     * is pruned, and a new context is created. Returns true if the text
+     * changed.
+     */
+    boolean setText(String newText) {
+        int newHash = newText.hashCode();
+        if (text != null && newHash == hash && newText.equals(text)) {
+            return false;
+        }
+        text = newText;
+        hash = newHash;
+        done[TOKENS] = false;
+        failed[TOKENS] = false;
+        messages.get(TOKENS).clear();
+        tokens = null;
+        lexer.prune();
+        ctx = new CompilationContext(lexer.names());
+        return true;
+    }
+
+    CompilationContext getContext() {
+        return ctx;
+    }
+
+    boolean isDone(int stage) {
+        return done[stage];
+    }
+
+    /**
+     * Returns true if the given stage reported an error when it ran.
+     */
+    boolean failed(int stage) {
+        return failed[stage];
+    }
+
+    /**
+     * Forgets that the given stage and the ones after it have run. This is
+     * used when a stage is cancelled part way, since it may have left the AST
+     * it was working on half done.
+     */
+    void discardFrom(int stage) {
+        for (int i = stage; i < NUM_STAGES; i++) {
+            done[i] = false;
+            failed[i] = false;
+            messages.get(i).clear();
+        }
+        if (stage <= TOKENS) {
+            keyTokens = null;
+        }
+        if (stage <= TREE) {
+            astRoot = null;
+        }
+        if (stage <= SYMBOLS) {
+            symT = null;
+        }
+        assembly = null;
+    }
+
+    /**
+     * Records that the given stage has run, along with the messages that are
+     * in the context now.
+     */
+    void finish(int stage) {
+        if (stage == TOKENS) {
+            int newHash = tokens.hash();
+            if (keyTokens == null || newHash != tokenHash || !tokens.sameAs(keyTokens)) {
+                discardFrom(TREE);
+            }
+            keyTokens = tokens;
+            tokenHash = newHash;
+        }
+        done[stage] = true;
+        failed[stage] = ctx.getErr();
+        messages.get(stage).clear();
+        messages.get(stage).addAll(ctx.getErrors());
+    }
+
+    /**
+     * Reports the messages of a stage that already ran again, as if it had
+     * just run.
+     */
+    void replay(int stage) {
+        ctx.clearErrors();
+        ctx.replay(messages.get(stage), failed[stage]);
+    }
+}
@@ -2,26 +2,117 @@ import java.util.*;
 
 public class SymTable {
 
-  private List<HashMap<String, Sym>> list;
-  private List<HashMap<String, Sym>> garbage;
+  /**
+   * The Syms declared in one scope, keyed by the NamePool ids of their
+   * names, in the order they were declared.
+   */
+  public static class Scope {
+    private int[] ids = new int[8];
+    private Sym[] syms = new Sym[8];
+    private int size = 0;
+
+    // open addressing table of index + 1 into ids/syms (0 is an empty slot)
+    private int[] table = new int[16];
+
+    public Sym get(int id) {
+      int mask = table.length - 1;
+      for (int i = slot(id, mask); ; i = (i + 1) & mask) {
+        int e = table[i];
+        if (e == 0) {
+          return null;
+        }
+        if (ids[e - 1] == id) {
+          return syms[e - 1];
+        }
+      }
+    }
+
+    public boolean containsKey(int id) {
+      return get(id) != null;
+    }
+
+    void put(int id, Sym sym) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        syms = Arrays.copyOf(syms, size * 2);
+      }
+      ids[size] = id;
+      syms[size] = sym;
+      size++;
+      if (size * 2 > table.length) {
+        table = new int[table.length * 2];
+        for (int k = 0; k < size; k++) {
+          insert(k);
+        }
+      } else {
+        insert(size - 1);
+      }
+    }
+
+    private void insert(int k) {
+      int mask = table.length - 1;
+      int i = slot(ids[k], mask);
+      while (table[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      table[i] = k + 1;
+    }
+
+    private static int slot(int id, int mask) {
+      return (id * 0x9E3779B9 >>> 16) & mask;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public int idAt(int i) {
+      return ids[i];
+    }
+
+    public Sym symAt(int i) {
+      return syms[i];
+    }
+  }
+
+  private NamePool names;
+  private List<Scope> list;
+  private List<Scope> garbage;
   public int ifcount = 1;
   public int elsecount = 1;
   public int whilecount = 1;
   public int repeatcount = 1;
 
+  /**
+   * Makes a table whose names are in the pool of the current context.
+   */
   public SymTable() {
-    list = new LinkedList<HashMap<String, Sym>>();
-    list.add(new HashMap<String, Sym>());
+    this(CompilationContext.current().names());
+  }
 
-    garbage = new LinkedList<HashMap<String, Sym>>();
+  public SymTable(NamePool names) {
+    this.names = names;
+    list = new LinkedList<Scope>();
+    list.add(new Scope());
+
+    garbage = new LinkedList<Scope>();
   }
 
   public void addDecl(String name, Sym sym) throws DuplicateSymException,
   EmptySymTableException, IllegalArgumentException {
 
-    if (name == null && sym == null) {
+    if (name == null) {
+      throw new IllegalArgumentException();
+    }
+    addDecl(names.id(name), sym);
+  }
+
+  public void addDecl(int id, Sym sym) throws DuplicateSymException,
+  EmptySymTableException, IllegalArgumentException {
+
+    if (id < 0 && sym == null) {
       throw new IllegalArgumentException();
-    } else if (name == null) {
+    } else if (id < 0) {
       throw new IllegalArgumentException();
     } else if (sym == null) {
       throw new IllegalArgumentException();
@@ -31,38 +122,43 @@ public class SymTable {
       throw new EmptySymTableException();
     }
 
-    HashMap<String, Sym> symTab = list.get(0);
-    if (symTab.containsKey(name)) {
+    Scope symTab = list.get(0);
+    if (symTab.containsKey(id)) {
       throw new DuplicateSymException();
     } else {
-      symTab.put(name, sym);
+      symTab.put(id, sym);
     }
   }
 
   public void addScope() {
-    list.add(0, new HashMap<String, Sym>());
+    list.add(0, new Scope());
   }
 
   public Sym lookupLocal(String name) throws EmptySymTableException {
+    return lookupLocal(names.find(name));
+  }
+
+  public Sym lookupLocal(int id) throws EmptySymTableException {
     if (list.isEmpty()) {
       throw new EmptySymTableException();
     }
 
-    if (list.get(0).containsKey(name)){
-      return list.get(0).get(name);
-    } else {
-      return null;
-    }
+    return list.get(0).get(id);
   }
 
   public Sym lookupGlobal(String name) throws EmptySymTableException {
+    return lookupGlobal(names.find(name));
+  }
+
+  public Sym lookupGlobal(int id) throws EmptySymTableException {
     if (list.isEmpty()) {
       throw new EmptySymTableException();
     }
 
-    for (HashMap<String, Sym> symTab : list) {
-      if (symTab.containsKey(name)){
-        return symTab.get(name);
+    for (Scope symTab : list) {
+      Sym sym = symTab.get(id);
+      if (sym != null) {
+        return sym;
       }
     }
     return null;
@@ -76,11 +172,11 @@ public class SymTable {
     list.remove(0);
   }
 
-  public List<HashMap<String, Sym>> getList() {
+  public List<Scope> getList() {
     return list;
   }
 
-  public List<HashMap<String, Sym>> getGarbage() {
+  public List<Scope> getGarbage() {
     return garbage;
   }
 
@@ -88,10 +184,24 @@ public class SymTable {
     this.garbage.add(st.getList().get(0));
   }
 
+  /**
+   * Return the name with the given id.
+   */
+  public String name(int id) {
+    return names.name(id);
+  }
+
   public void print() {
     System.out.print("\nSym Table\n");
-    for (HashMap<String, Sym> symTab : list) {
-      System.out.println(symTab.toString());
+    for (Scope symTab : list) {
+      StringBuilder b = new StringBuilder("{");
+      for (int i = 0; i < symTab.size(); i++) {
+        if (i > 0) {
+          b.append(", ");
+        }
+        b.append(name(symTab.idAt(i))).append('=').append(symTab.symAt(i));
+      }
+      System.out.println(b.append('}'));
     }
     System.out.println();
   }
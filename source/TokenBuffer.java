@@ -0,0 +1,224 @@
+import java.util.*;
+import java_cup.runtime.*;
+import project.*;
+
+/**
+ * TokenBuffer
+ *
+ * A token stream kept in parallel int arrays instead of one Symbol and one
+ * TokenVal object per token. For every token it holds the kind (a sym
+ * constant), the line, the character number (column) and a value: for an
+ * INTLITERAL the value of the literal, for an ID or STRINGLITERAL the id of
+ * its text in the NamePool, and -1 for every other token.
+ *
+ * The scanner fills a buffer with Yylex.scanInto. The parser reads it
+ * through cursor(), which makes the Symbol for each token only as the parser
+ * asks for it, and the visualizer shows the tokens straight from the arrays.
+ */
+class TokenBuffer {
+    private int[] kind;
+    private int[] line;
+    private int[] col;
+    private int[] value;
+    private int size = 0;
+    private NamePool names;
+
+    /**
+     * Makes a buffer whose names are in the pool of the current context.
+     */
+    public TokenBuffer() {
+        this(256, CompilationContext.current().names());
+    }
+
+    public TokenBuffer(int capacity, NamePool names) {
+        this.names = names;
+        capacity = Math.max(capacity, 16);
+        kind = new int[capacity];
+        line = new int[capacity];
+        col = new int[capacity];
+        value = new int[capacity];
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > kind.length) {
+            int n = Math.max(kind.length * 2, needed);
+            kind = Arrays.copyOf(kind, n);
+            line = Arrays.copyOf(line, n);
+            col = Arrays.copyOf(col, n);
+            value = Arrays.copyOf(value, n);
+        }
+    }
+
+    /**
+     * Adds a token that has no value.
+     */
+    void add(int k, int ln, int ch) {
+        add(k, ln, ch, -1);
+    }
+
+    /**
+     * Adds an ID or STRINGLITERAL token whose text has the given id.
+     */
+    void addName(int k, int ln, int ch, int id) {
+        add(k, ln, ch, id);
+    }
+
+    /**
+     * Adds an INTLITERAL token with the given value.
+     */
+    void addInt(int ln, int ch, int v) {
+        add(sym.INTLITERAL, ln, ch, v);
+    }
+
+    private void add(int k, int ln, int ch, int v) {
+        ensureCapacity(size + 1);
+        kind[size] = k;
+        line[size] = ln;
+        col[size] = ch;
+        value[size] = v;
+        size++;
+    }
+
+    /**
+     * Adds tokens [from, to) of another buffer, which must use the same name
+     * pool, with their lines moved by lineShift.
+     */
+    void append(TokenBuffer other, int from, int to, int lineShift) {
+        int n = to - from;
+        ensureCapacity(size + n);
+        System.arraycopy(other.kind, from, kind, size, n);
+        System.arraycopy(other.line, from, line, size, n);
+        System.arraycopy(other.col, from, col, size, n);
+        System.arraycopy(other.value, from, value, size, n);
+        if (lineShift != 0) {
+            for (int i = size; i < size + n; i++) {
+                line[i] += lineShift;
+            }
+        }
+        size += n;
+    }
+
+    /**
+     * Returns a copy of the buffer whose names are in the given pool.
+     */
+    TokenBuffer renamed(NamePool pool) {
+        TokenBuffer copy = new TokenBuffer(size, pool);
+        copy.append(this, 0, size, 0);
+        for (int i = 0; i < size; i++) {
+            if (kind[i] == sym.ID || kind[i] == sym.STRINGLITERAL) {
+                copy.value[i] = pool.id(names.name(value[i]));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Drops every token from index n on.
+     */
+    void truncate(int n) {
+        size = Math.min(size, n);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int kind(int i) {
+        return kind[i];
+    }
+
+    int line(int i) {
+        return line[i];
+    }
+
+    int col(int i) {
+        return col[i];
+    }
+
+    /**
+     * Returns the text of an ID or STRINGLITERAL token.
+     */
+    String string(int i) {
+        return names.name(value[i]);
+    }
+
+    /**
+     * Returns the value of an INTLITERAL token.
+     */
+    int intValue(int i) {
+        return value[i];
+    }
+
+    /**
+     * Makes the Symbol the scanner would have returned for token i.
+     */
+    Symbol symbol(int i) {
+        int k = kind[i];
+        TokenVal v;
+        if (k == sym.ID) {
+            v = new IdTokenVal(line[i], col[i], value[i], names.name(value[i]));
+        } else if (k == sym.STRINGLITERAL) {
+            v = new StrLitTokenVal(line[i], col[i], names.name(value[i]));
+        } else if (k == sym.INTLITERAL) {
+            v = new IntLitTokenVal(line[i], col[i], value[i]);
+        } else {
+            v = new TokenVal(line[i], col[i]);
+        }
+        return new Symbol(k, v);
+    }
+
+    /**
+     * Returns a hash of the kinds, positions and values of the tokens.
+     */
+    int hash() {
+        int h = 1;
+        for (int i = 0; i < size; i++) {
+            h = 31 * h + kind[i];
+            h = 31 * h + line[i];
+            h = 31 * h + col[i];
+            h = 31 * h + value[i];
+        }
+        return h;
+    }
+
+    /**
+     * Returns true if the other buffer uses the same name pool and holds the
+     * same tokens at the same positions.
+     */
+    boolean sameAs(TokenBuffer other) {
+        if (size != other.size || names != other.names) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (kind[i] != other.kind[i] || line[i] != other.line[i] || col[i] != other.col[i]
+                || value[i] != other.value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a Scanner that hands the tokens to the parser, then EOF.
+     */
+    java_cup.runtime.Scanner cursor() {
+        return cursor(0, size);
+    }
+
+    /**
+     * Returns a Scanner that hands tokens [from, to) to the parser, then EOF.
+     */
+    java_cup.runtime.Scanner cursor(int from, int to) {
+        return new java_cup.runtime.Scanner() {
+            private int next = from;
+
+            public Symbol next_token() {
+                CompilationContext.checkCancelled();
+                if (next < to) {
+                    return symbol(next++);
+                }
+                return new Symbol(sym.EOF);
+            }
+        };
+    }
+}
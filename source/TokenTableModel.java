@@ -0,0 +1,40 @@
+import javax.swing.table.*;
+import project.*;
+
+/**
+ * TokenTableModel
+ *
+ * The model of the visualizer's token table: the tokens of a TokenBuffer,
+ * eight to a row, each shown as Name(line number, character number). The
+ * text of a cell is made from the buffer's arrays when the table asks for
+ * it, so only the rows that are on screen ever get a String.
+ */
+class TokenTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final int COLUMNS = 8;
+    private TokenBuffer tokens;
+
+    public TokenTableModel(TokenBuffer tokens) {
+        this.tokens = tokens;
+    }
+
+    public int getRowCount() {
+        return (tokens.size() + COLUMNS - 1) / COLUMNS;
+    }
+
+    public int getColumnCount() {
+        return COLUMNS;
+    }
+
+    public Class<?> getColumnClass(int columnIndex) {
+        return String.class;
+    }
+
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int i = rowIndex * COLUMNS + columnIndex;
+        if (i >= tokens.size()) {
+            return null;
+        }
+        return sym.terminalNames[tokens.kind(i)] + "(" + tokens.line(i) + "," + tokens.col(i) + ")";
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.*;
+
+/**
+ * WorkStack
+ *
+ * Lets a pass over the AST go through nested statements without running
+ * out of stack, so a program nested thousands of ifs or whiles deep can be
+ * compiled. ProgramNode.check (see SemanticPass) and codeGen are run this
+ * way.
+ *
+ * A step is a piece of a pass, such as checking one statement. Instead of
+ * calling the pass on its body, a step hands the rest of its work to then:
+ * the body, and whatever is to be done after it (leaving a scope, putting
+ * down a label). While run is going on, then does the step at once, the
+ * way a recursive pass would, until steps are nested MAX_DEPTH deep. Deeper
+ * than that it puts the step aside instead, and so does every then after
+ * it until the step run is doing is over (otherwise they would be done
+ * before it). run then does the steps put aside, on a stack of its own,
+ * first to last, each one before the steps that were waiting when it
+ * started, so everything is done in the same order as if the pass had
+ * recursed all the way down.
+ *
+ * Outside run, then always does the step at once, which makes the pass
+ * recursive again: a node can still be checked or generated on its own.
+ */
+class WorkStack {
+    // how deep steps are nested before they are put aside
+    static final int MAX_DEPTH = 256;
+
+    // the steps still to do, the next one on top
+    private final ArrayDeque<Runnable> steps = new ArrayDeque<Runnable>();
+
+    // the steps put aside while the current one was done
+    private final ArrayList<Runnable> handed = new ArrayList<Runnable>();
+
+    private boolean running = false;
+    private int depth = 0;
+
+    /**
+     * Does the given step after what the current one has done so far, and
+     * before anything the current one hands over after it. Like the loops
+     * over declarations and statements did, checks for cancellation before
+     * every step.
+     */
+    void then(Runnable step) {
+        if (running && (depth >= MAX_DEPTH || !handed.isEmpty())) {
+            handed.add(step);
+            return;
+        }
+        CompilationContext.checkCancelled();
+        depth++;
+        try {
+            step.run();
+        } finally {
+            depth--;
+        }
+    }
+
+    /**
+     * Does the given step and every step handed over from it, and returns
+     * when they are all done. If a step throws, the steps left are dropped.
+     * Called while run is going on, this is the same as then.
+     */
+    void run(Runnable first) {
+        if (running) {
+            then(first);
+            return;
+        }
+        running = true;
+        try {
+            steps.push(first);
+            while (!steps.isEmpty()) {
+                then(steps.pop());
+                // pushed last to first, so they are done first to last
+                for (int i = handed.size() - 1; i >= 0; i--) {
+                    steps.push(handed.get(i));
+                }
+                handed.clear();
+            }
+        } finally {
+            running = false;
+            steps.clear();
+            handed.clear();
+        }
+    }
+}
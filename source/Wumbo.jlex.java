@@ -27,11 +27,13 @@ class IntLitTokenVal extends TokenVal {
     }
 }
 class IdTokenVal extends TokenVal {
-  // new field: the value of the identifier
+  // new fields: the id of the identifier in the NamePool, and its name
+    int id;
     String idVal;
   // constructor
-    IdTokenVal(int line, int ch, String val) {
+    IdTokenVal(int line, int ch, int id, String val) {
         super(line, ch);
+        this.id = id;
     idVal = val;
     }
 }
@@ -44,29 +46,116 @@ class StrLitTokenVal extends TokenVal {
         strVal = val;
     }
 }
-// The following class is used to keep track of the character number at which
-// the current token starts on its line.
-class CharNum {
-    static int num=1;
-}
 
 
 class Yylex implements java_cup.runtime.Scanner {
-	private final int YY_BUFFER_SIZE = 512;
-	private final int YY_F = -1;
-	private final int YY_NO_STATE = -1;
-	private final int YY_NOT_ACCEPT = 0;
-	private final int YY_START = 1;
-	private final int YY_END = 2;
-	private final int YY_NO_ANCHOR = 4;
-	private final int YY_BOL = 128;
-	private final int YY_EOF = 129;
+	private static final int YY_BUFFER_SIZE = 512;
+	private static final int YY_BUFFER_MAX = 65536;
+	private static final int YY_F = -1;
+	private static final int YY_NO_STATE = -1;
+	private static final int YY_NOT_ACCEPT = 0;
+	private static final int YY_START = 1;
+	private static final int YY_END = 2;
+	private static final int YY_NO_ANCHOR = 4;
+	private static final int YY_BOL = 128;
+	private static final int YY_EOF = 129;
+
+// the character number at which the current token starts on its line
+private int charNum = 1;
+// the compilation that errors and warnings are reported to
+private CompilationContext ctx = CompilationContext.current();
+// where the checkpoint at the start of every line is recorded (used by
+// IncrementalLexer; null if nobody wants them)
+IncrementalLexer.Checkpoints checkpoints = null;
+Yylex(java.io.Reader reader, CompilationContext ctx) {
+    this(reader);
+    this.ctx = ctx;
+}
+// Makes the scanner carry on from a checkpoint: the reader must start at the
+// checkpoint's offset, and the line, character number and lexical state
+// are set to the ones recorded there.
+void resume(int line, int ch, int state) {
+    yyline = line;
+    charNum = ch;
+    yybegin(state);
+}
+// where tokens go instead of into Symbols (set by scanInto and by
+// IncrementalLexer; null when next_token should return a Symbol for every
+// token)
+TokenBuffer buffer = null;
+// what next_token returns for a token it put into the buffer
+private static final Symbol BUFFERED = new Symbol(-1);
+// Scans the rest of the input into the buffer, without making a Symbol for
+// any of the tokens.
+void scanInto(TokenBuffer buf) throws java.io.IOException {
+    buffer = buf;
+    try {
+        while (next_token().sym != sym.EOF) {
+            CompilationContext.checkCancelled();
+        }
+    } finally {
+        buffer = null;
+    }
+}
+// Returns a token of the given kind, which has no value, and moves charNum
+// past it.
+private Symbol token(int kind) {
+    int ch = charNum;
+    charNum += yylength();
+    if (buffer != null) {
+        buffer.add(kind, yyline+1, ch);
+        return BUFFERED;
+    }
+    return new Symbol(kind, new TokenVal(yyline+1, ch));
+}
+// Returns an ID or STRINGLITERAL token with the matched text as its value.
+// The text is looked up in the name pool straight from the input buffer, so
+// a String is only made the first time a name is seen.
+private Symbol stringToken(int kind) {
+    int ch = charNum;
+    int len = yylength();
+    int id = ctx.names().id(yy_buffer, yy_buffer_start, len);
+    charNum += len;
+    if (buffer != null) {
+        buffer.addName(kind, yyline+1, ch, id);
+        return BUFFERED;
+    }
+    String val = ctx.names().name(id);
+    if (kind == sym.ID) {
+        return new Symbol(kind, new IdTokenVal(yyline+1, ch, id, val));
+    }
+    return new Symbol(kind, new StrLitTokenVal(yyline+1, ch, val));
+}
+// Returns the value of the INTLITERAL just matched, or -1 if it is larger
+// than Integer.MAX_VALUE. The digits are read straight from the input buffer.
+private int intValue() {
+    CharSequence text = yychars();
+    long val = 0;
+    for (int i = 0; i < text.length(); i++) {
+        val = val * 10 + (text.charAt(i) - '0');
+        if (val > Integer.MAX_VALUE) {
+            return -1;
+        }
+    }
+    return (int) val;
+}
+// Returns an INTLITERAL token with the given value.
+private Symbol intToken(int val) {
+    int ch = charNum;
+    charNum += yylength();
+    if (buffer != null) {
+        buffer.addInt(yyline+1, ch, val);
+        return BUFFERED;
+    }
+    return new Symbol(sym.INTLITERAL, new IntLitTokenVal(yyline+1, ch, val));
+}
 	private java.io.BufferedReader yy_reader;
 	private int yy_buffer_index;
 	private int yy_buffer_read;
 	private int yy_buffer_start;
 	private int yy_buffer_end;
 	private char yy_buffer[];
+	private int yychar;
 	private int yyline;
 	private boolean yy_at_bol;
 	private int yy_lexical_state;
@@ -93,60 +182,55 @@ class Yylex implements java_cup.runtime.Scanner {
 		yy_buffer_index = 0;
 		yy_buffer_start = 0;
 		yy_buffer_end = 0;
+		yychar = 0;
 		yyline = 0;
 		yy_at_bol = true;
 		yy_lexical_state = YYINITIAL;
 	}
 
 	private boolean yy_eof_done = false;
-	private final int YYINITIAL = 0;
-	private final int yy_state_dtrans[] = {
+	private static final int YYINITIAL = 0;
+	private static final int yy_state_dtrans[] = {
 		0
 	};
 	private void yybegin (int state) {
 		yy_lexical_state = state;
 	}
+	private boolean yy_read_filled = false;
 	private int yy_advance ()
 		throws java.io.IOException {
-		int next_read;
-		int i;
-		int j;
-
 		if (yy_buffer_index < yy_buffer_read) {
 			return yy_buffer[yy_buffer_index++];
 		}
+		return yy_refill();
+	}
+	private int yy_refill ()
+		throws java.io.IOException {
+		int next_read;
+		int room;
 
 		if (0 != yy_buffer_start) {
-			i = yy_buffer_start;
-			j = 0;
-			while (i < yy_buffer_read) {
-				yy_buffer[j] = yy_buffer[i];
-				++i;
-				++j;
-			}
+			java.lang.System.arraycopy(yy_buffer, yy_buffer_start,
+					yy_buffer, 0, yy_buffer_read - yy_buffer_start);
 			yy_buffer_end = yy_buffer_end - yy_buffer_start;
+			yy_buffer_read = yy_buffer_read - yy_buffer_start;
+			yy_buffer_index = yy_buffer_index - yy_buffer_start;
 			yy_buffer_start = 0;
-			yy_buffer_read = j;
-			yy_buffer_index = j;
-			next_read = yy_reader.read(yy_buffer,
-					yy_buffer_read,
-					yy_buffer.length - yy_buffer_read);
-			if (-1 == next_read) {
-				return YY_EOF;
-			}
-			yy_buffer_read = yy_buffer_read + next_read;
 		}
 
 		while (yy_buffer_index >= yy_buffer_read) {
-			if (yy_buffer_index >= yy_buffer.length) {
-				yy_buffer = yy_double(yy_buffer);
+			if (2 * yy_buffer_read > yy_buffer.length
+			    || (yy_read_filled && yy_buffer.length < YY_BUFFER_MAX)) {
+				yy_buffer = java.util.Arrays.copyOf(yy_buffer,
+						2 * yy_buffer.length);
 			}
+			room = yy_buffer.length - yy_buffer_read;
 			next_read = yy_reader.read(yy_buffer,
-					yy_buffer_read,
-					yy_buffer.length - yy_buffer_read);
+					yy_buffer_read, room);
 			if (-1 == next_read) {
 				return YY_EOF;
 			}
+			yy_read_filled = (next_read == room);
 			yy_buffer_read = yy_buffer_read + next_read;
 		}
 		return yy_buffer[yy_buffer_index++];
@@ -171,6 +255,8 @@ class Yylex implements java_cup.runtime.Scanner {
 				yy_last_was_cr=true;
 			} else yy_last_was_cr=false;
 		}
+		yychar = yychar
+			+ yy_buffer_index - yy_buffer_start;
 		yy_buffer_start = yy_buffer_index;
 	}
 	private void yy_mark_end () {
@@ -192,6 +278,23 @@ class Yylex implements java_cup.runtime.Scanner {
 	private int yylength () {
 		return yy_buffer_end - yy_buffer_start;
 	}
+	private final java.lang.CharSequence yy_text = new java.lang.CharSequence() {
+		public int length () {
+			return yy_buffer_end - yy_buffer_start;
+		}
+		public char charAt (int i) {
+			return yy_buffer[yy_buffer_start + i];
+		}
+		public java.lang.CharSequence subSequence (int from, int to) {
+			return toString().subSequence(from, to);
+		}
+		public java.lang.String toString () {
+			return yytext();
+		}
+	};
+	private java.lang.CharSequence yychars () {
+		return yy_text;
+	}
 	private char[] yy_double (char buf[]) {
 		int i;
 		char newbuf[];
@@ -201,9 +304,9 @@ class Yylex implements java_cup.runtime.Scanner {
 		}
 		return newbuf;
 	}
-	private final int YY_E_INTERNAL = 0;
-	private final int YY_E_MATCH = 1;
-	private java.lang.String yy_error_string[] = {
+	private static final int YY_E_INTERNAL = 0;
+	private static final int YY_E_MATCH = 1;
+	private static final java.lang.String yy_error_string[] = {
 		"Error: Internal error.\n",
 		"Error: Unmatched input.\n"
 	};
@@ -214,7 +317,7 @@ class Yylex implements java_cup.runtime.Scanner {
 			throw new Error("Fatal Error.\n");
 		}
 	}
-	private int[][] unpackFromString(int size1, int size2, String st) {
+	private static int[][] unpackFromString(int size1, int size2, String st) {
 		int colonIndex = -1;
 		String lengthString;
 		int sequenceLength = 0;
@@ -251,7 +354,7 @@ class Yylex implements java_cup.runtime.Scanner {
 		}
 		return res;
 	}
-	private int yy_acpt[] = {
+	private static final int yy_acpt[] = {
 		/* 0 */ YY_NOT_ACCEPT,
 		/* 1 */ YY_NO_ANCHOR,
 		/* 2 */ YY_NO_ANCHOR,
@@ -347,17 +450,17 @@ class Yylex implements java_cup.runtime.Scanner {
 		/* 92 */ YY_NO_ANCHOR,
 		/* 93 */ YY_NO_ANCHOR
 	};
-	private int yy_cmap[] = unpackFromString(1,130,
+	private static final int yy_cmap[] = unpackFromString(1,130,
 "46:9,27,26,46:2,23,46:18,27,41,22,45,46:2,42,25,30,31,39,37,33,38,34,40,21:" +
 "10,46,32,35,44,36,25,46,19:26,46,24,46:2,19,46,13,1,15,8,11,12,20,17,4,20:2" +
 ",3,20,5,2,18,20,9,14,6,10,7,16,20:3,28,43,29,46:2,0:2")[0];
 
-	private int yy_rmap[] = unpackFromString(1,94,
+	private static final int yy_rmap[] = unpackFromString(1,94,
 "0,1,2,3,4,1:2,5,1:7,6,7,8,9,1,10,11,12,13,14,1:11,14:2,15,14:5,16,14:5,17,1" +
 "8,19,1,20,21,22,23,24,25,26,27,28,29,30,31,32,33,34,14,35,36,37,38,39,40,41" +
 ",42,43,44,45,46,47,48,49,14,50,51,52,53,54,55,56,57")[0];
 
-	private int yy_nxt[][] = unpackFromString(58,47,
+	private static final int yy_nxt[][] = unpackFromString(58,47,
 "1,2,85:2,51,85,87,88,85,89,85,90,91,85,92,67,93,85:4,3,4,-1,5:2,6,7,8,9,10," +
 "11,12,13,14,15,16,17,18,19,20,21,52,55,22,23,5,-1:48,85,68,85:16,69,85,69,-" +
 "1:46,3,-1:26,4:21,25,4,50,4,-1,4:20,-1:27,7,-1:54,26,-1:8,27,-1:38,28,-1:7," +
@@ -431,172 +534,104 @@ return new Symbol(sym.EOF);
 						break;
 					case 2:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -3:
 						break;
 					case 3:
-						{ // NOTE: the following computation of the integer value does NOT
-            //       check for overflow.  This must be modified.
-	double d = Double.parseDouble(yytext());
-	if(d > Integer.MAX_VALUE) {
-		ErrMsg.warn(yyline+1,CharNum.num,"literal too large; using max value");
-		Symbol s = new Symbol(sym.INTLITERAL,
-			new IntLitTokenVal(yyline+1, CharNum.num, Integer.MAX_VALUE));
-		CharNum.num += yytext().length();
-		return s;
+						{ int val = intValue();
+	if(val < 0) {
+		ctx.warn(yyline+1,charNum,"literal too large; using max value");
+		return intToken(Integer.MAX_VALUE);
 	}
-            int val = Integer.parseInt(yytext());
-            Symbol s = new Symbol(sym.INTLITERAL,
-                             new IntLitTokenVal(yyline+1, CharNum.num, val));
-            CharNum.num += yytext().length();
-            return s;
+            return intToken(val);
           }
 					case -4:
 						break;
 					case 4:
 						{
-	ErrMsg.fatal(yyline+1, CharNum.num, "unterminated string literal");
+	ctx.fatal(yyline+1, charNum, "unterminated string literal");
 }
 					case -5:
 						break;
 					case 5:
 						{//NOTE: add warning message for max int
-	 ErrMsg.fatal(yyline+1, CharNum.num,
+	 ctx.fatal(yyline+1, charNum,
                          "illegal character ignored: " + yytext());
-            CharNum.num++;
+            charNum++;
           }
 					case -6:
 						break;
 					case 6:
-						{ CharNum.num = 1; }
+						{ charNum = 1;
+            if (checkpoints != null) {
+                checkpoints.add(yychar + 1, yyline + 1, charNum, yy_lexical_state);
+            }
+          }
 					case -7:
 						break;
 					case 7:
-						{ CharNum.num += yytext().length(); }
+						{ charNum += yylength(); }
 					case -8:
 						break;
 					case 8:
-						{ Symbol s = new Symbol(sym.LCURLY,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.LCURLY); }
 					case -9:
 						break;
 					case 9:
-						{ Symbol s = new Symbol(sym.RCURLY,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.RCURLY); }
 					case -10:
 						break;
 					case 10:
-						{ Symbol s = new Symbol(sym.LPAREN,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.LPAREN); }
 					case -11:
 						break;
 					case 11:
-						{ Symbol s = new Symbol(sym.RPAREN,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.RPAREN); }
 					case -12:
 						break;
 					case 12:
-						{ Symbol s = new Symbol(sym.SEMICOLON,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.SEMICOLON); }
 					case -13:
 						break;
 					case 13:
-						{ Symbol s = new Symbol(sym.COMMA,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.COMMA); }
 					case -14:
 						break;
 					case 14:
-						{ Symbol s = new Symbol(sym.DOT,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.DOT); }
 					case -15:
 						break;
 					case 15:
-						{ Symbol s = new Symbol(sym.LESS,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.LESS); }
 					case -16:
 						break;
 					case 16:
-						{ Symbol s = new Symbol(sym.GREATER,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.GREATER); }
 					case -17:
 						break;
 					case 17:
-						{ Symbol s = new Symbol(sym.PLUS, new TokenVal(yyline+1, CharNum.num));
-            CharNum.num++;
-            return s;
-          }
+						{ return token(sym.PLUS); }
 					case -18:
 						break;
 					case 18:
-						{ Symbol s = new Symbol(sym.MINUS,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.MINUS); }
 					case -19:
 						break;
 					case 19:
-						{ Symbol s = new Symbol(sym.TIMES,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.TIMES); }
 					case -20:
 						break;
 					case 20:
-						{ Symbol s = new Symbol(sym.DIVIDE,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.DIVIDE); }
 					case -21:
 						break;
 					case 21:
-						{ Symbol s = new Symbol(sym.NOT,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.NOT); }
 					case -22:
 						break;
 					case 22:
-						{ Symbol s = new Symbol(sym.ASSIGN,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.ASSIGN); }
 					case -23:
 						break;
 					case 23:
@@ -605,629 +640,400 @@ return new Symbol(sym.EOF);
 						break;
 					case 24:
 						{
-        Symbol s = new Symbol(sym.IF,new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
+        return token(sym.IF);
 }
 					case -25:
 						break;
 					case 25:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.STRINGLITERAL,
-		new StrLitTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;	
+	return stringToken(sym.STRINGLITERAL);	
 }
 					case -26:
 						break;
 					case 26:
-						{ Symbol s = new Symbol(sym.WRITE,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.WRITE); }
 					case -27:
 						break;
 					case 27:
-						{ Symbol s = new Symbol(sym.LESSEQ,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.LESSEQ); }
 					case -28:
 						break;
 					case 28:
-						{ Symbol s = new Symbol(sym.READ,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.READ); }
 					case -29:
 						break;
 					case 29:
-						{ Symbol s = new Symbol(sym.GREATEREQ,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.GREATEREQ); }
 					case -30:
 						break;
 					case 30:
-						{ Symbol s = new Symbol(sym.PLUSPLUS,
-		new TokenVal(yyline+1, CharNum.num));
-	CharNum.num += yytext().length();
-	return s;	
+						{ return token(sym.PLUSPLUS);	
 }
 					case -31:
 						break;
 					case 31:
-						{ Symbol s = new Symbol(sym.MINUSMINUS,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.MINUSMINUS); }
 					case -32:
 						break;
 					case 32:
-						{ Symbol s = new Symbol(sym.NOTEQUALS,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.NOTEQUALS); }
 					case -33:
 						break;
 					case 33:
-						{ Symbol s = new Symbol(sym.AND,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.AND); }
 					case -34:
 						break;
 					case 34:
-						{ Symbol s = new Symbol(sym.OR,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.OR); }
 					case -35:
 						break;
 					case 35:
-						{ Symbol s = new Symbol(sym.EQUALS,
-                new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
-}
+						{ return token(sym.EQUALS); }
 					case -36:
 						break;
 					case 36:
 						{
-	Symbol s = new Symbol(sym.INT,new TokenVal(yyline+1, CharNum.num));
-	CharNum.num += yytext().length();
-	return s;
+	return token(sym.INT);
 }
 					case -37:
 						break;
 					case 37:
 						{
-        Symbol s = new Symbol(sym.CIN,new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
+        return token(sym.CIN);
 }
 					case -38:
 						break;
 					case 38:
 						{
-	ErrMsg.fatal(yyline+1, CharNum.num, "unterminated string literal with bad escaped character ignored");
+	ctx.fatal(yyline+1, charNum, "unterminated string literal with bad escaped character ignored");
 }
 					case -39:
 						break;
 					case 39:
 						{
-	Symbol s = new Symbol(sym.BOOL,new TokenVal(yyline+1, CharNum.num));
-	CharNum.num += yytext().length();
-	return s;
+	return token(sym.BOOL);
 }
 					case -40:
 						break;
 					case 40:
 						{
-	Symbol s = new Symbol(sym.TRUE,new TokenVal(yyline+1, CharNum.num));
-	CharNum.num += yytext().length();
-	return s;
+	return token(sym.TRUE);
 }
 					case -41:
 						break;
 					case 41:
 						{
-	Symbol s = new Symbol(sym.VOID,new TokenVal(yyline+1, CharNum.num));
-	CharNum.num += yytext().length();
-	return s;
+	return token(sym.VOID);
 }
 					case -42:
 						break;
 					case 42:
 						{
-        Symbol s = new Symbol(sym.ELSE,new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
+        return token(sym.ELSE);
 }
 					case -43:
 						break;
 					case 43:
 						{
-        Symbol s = new Symbol(sym.COUT,new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
+        return token(sym.COUT);
 }
 					case -44:
 						break;
 					case 44:
 						{
-	ErrMsg.fatal(yyline+1, CharNum.num, "string literal with bad escaped character ignored");
+	ctx.fatal(yyline+1, charNum, "string literal with bad escaped character ignored");
 }
 					case -45:
 						break;
 					case 45:
 						{
-	Symbol s = new Symbol(sym.FALSE,new TokenVal(yyline+1, CharNum.num));
-	CharNum.num += yytext().length();
-	return s;
+	return token(sym.FALSE);
 }
 					case -46:
 						break;
 					case 46:
 						{
-        Symbol s = new Symbol(sym.WHILE,new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
+        return token(sym.WHILE);
 }
 					case -47:
 						break;
 					case 47:
 						{
-        Symbol s = new Symbol(sym.RETURN,new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
+        return token(sym.RETURN);
 }
 					case -48:
 						break;
 					case 48:
 						{
-	Symbol s = new Symbol(sym.REPEAT, new TokenVal(yyline+1,CharNum.num));
-	CharNum.num += yytext().length();
-	return s;
+	return token(sym.REPEAT);
 	}
 					case -49:
 						break;
 					case 49:
 						{
-        Symbol s = new Symbol(sym.STRUCT,new TokenVal(yyline+1, CharNum.num));
-        CharNum.num += yytext().length();
-        return s;
+        return token(sym.STRUCT);
 }
 					case -50:
 						break;
 					case 51:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -51:
 						break;
 					case 52:
 						{//NOTE: add warning message for max int
-	 ErrMsg.fatal(yyline+1, CharNum.num,
+	 ctx.fatal(yyline+1, charNum,
                          "illegal character ignored: " + yytext());
-            CharNum.num++;
+            charNum++;
           }
 					case -52:
 						break;
 					case 53:
 						{
-	ErrMsg.fatal(yyline+1, CharNum.num, "unterminated string literal with bad escaped character ignored");
+	ctx.fatal(yyline+1, charNum, "unterminated string literal with bad escaped character ignored");
 }
 					case -53:
 						break;
 					case 54:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -54:
 						break;
 					case 55:
 						{//NOTE: add warning message for max int
-	 ErrMsg.fatal(yyline+1, CharNum.num,
+	 ctx.fatal(yyline+1, charNum,
                          "illegal character ignored: " + yytext());
-            CharNum.num++;
+            charNum++;
           }
 					case -55:
 						break;
 					case 56:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -56:
 						break;
 					case 57:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -57:
 						break;
 					case 58:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -58:
 						break;
 					case 59:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -59:
 						break;
 					case 60:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -60:
 						break;
 					case 61:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -61:
 						break;
 					case 62:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -62:
 						break;
 					case 63:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -63:
 						break;
 					case 64:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -64:
 						break;
 					case 65:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -65:
 						break;
 					case 66:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -66:
 						break;
 					case 67:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -67:
 						break;
 					case 68:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -68:
 						break;
 					case 69:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -69:
 						break;
 					case 70:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -70:
 						break;
 					case 71:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -71:
 						break;
 					case 72:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -72:
 						break;
 					case 73:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -73:
 						break;
 					case 74:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -74:
 						break;
 					case 75:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -75:
 						break;
 					case 76:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -76:
 						break;
 					case 77:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -77:
 						break;
 					case 78:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -78:
 						break;
 					case 79:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -79:
 						break;
 					case 80:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -80:
 						break;
 					case 81:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -81:
 						break;
 					case 82:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -82:
 						break;
 					case 83:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -83:
 						break;
 					case 84:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -84:
 						break;
 					case 85:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -85:
 						break;
 					case 86:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -86:
 						break;
 					case 87:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -87:
 						break;
 					case 88:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -88:
 						break;
 					case 89:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -89:
 						break;
 					case 90:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -90:
 						break;
 					case 91:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -91:
 						break;
 					case 92:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -92:
 						break;
 					case 93:
 						{
-	String val = yytext();
-	Symbol s = new Symbol(sym.ID,
-		new IdTokenVal(yyline+1, CharNum.num, val));
-	CharNum.num += yytext().length();
-	return s;
+	return stringToken(sym.ID);
 }
 					case -93:
 						break;
@@ -0,0 +1,519 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * WumboGen
+ *
+ * Makes up Wumbo programs, as big as asked for, to load the compiler and the
+ * visualizer with. The same seed and knobs always give the same program, so
+ * a corpus can be made again instead of kept.
+ *
+ * Usage:
+ *     java -cp ./deps:. WumboGen [-seed N] [-functions N] [-stmts N]
+ *                                [-depth N] [-structs N] [-expdepth N]
+ *                                [-strings P] [-lexerr P] [-syntaxerr P]
+ *                                [-typeerr P] [-o file]
+ *
+ * -functions is the number of functions besides main, -stmts the number of
+ * statements in a function body (nested blocks get half as many as the
+ * block they are in), -depth how deep if, while and repeat statements are
+ * nested, and -expdepth how deep expressions are. -structs makes a chain of
+ * that many struct types, each with a field of the one before, and a global
+ * of each, so field accesses like s2.inner.inner.n are up to that many dots
+ * long. -strings is the share of cout statements that write a string literal
+ * instead of an int.
+ *
+ * Unless errors are asked for, the program is one the scanner, parser, name
+ * analysis and type check all accept. -lexerr, -syntaxerr and -typeerr are
+ * the chances that a statement is replaced by one with a lexical, syntax or
+ * type error. Code generation does not handle field accesses, so
+ * programs for the codegen stage should be made with -structs 0.
+ *
+ * The program is written to standard output unless -o is given. A comment at
+ * the top records the seed and knobs it was made with.
+ */
+public class WumboGen {
+
+    // the knobs, with their defaults
+    public long seed = 1;
+    public int functions = 20;
+    public int stmts = 12;
+    public int depth = 2;
+    public int structs = 2;
+    public int expDepth = 3;
+    public double strings = 0.3;
+    public double lexErrors = 0;
+    public double syntaxErrors = 0;
+    public double typeErrors = 0;
+
+    // how many errors of each kind were put into the last program
+    public int lexErrorCount;
+    public int syntaxErrorCount;
+    public int typeErrorCount;
+
+    private Random rnd;
+    private PrintWriter out;
+    private int indent;
+
+    // the functions declared so far: their return types (INT, BOOL or VOID)
+    // and numbers of formals
+    private List<Integer> fnTypes;
+    private List<Integer> fnArity;
+
+    // the int and bool variables in scope, innermost scope last
+    private List<List<String>> intScopes;
+    private List<List<String>> boolScopes;
+
+    // the return type of the function being made, and how many locals it has
+    private int fnType;
+    private int locals;
+
+    private static final int INT = 0;
+    private static final int BOOL = 1;
+    private static final int VOID = 2;
+    private static final String[] TYPE_NAMES = {"int", "bool", "void"};
+
+    // the characters the scanner does not accept
+    private static final String ILLEGAL = "@$%^&`~?";
+
+    private static final String[] ARITH = {"+", "-", "*", "/"};
+    private static final String[] RELATIONAL = {"<", ">", "<=", ">=", "==", "!="};
+    private static final String[] WORDS = {"hello", "wumbo", "total", "value", "done", "loop"};
+
+    public WumboGen() {
+    }
+
+    public WumboGen(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the program as a String.
+     */
+    public String generate() {
+        StringWriter sw = new StringWriter();
+        generate(new PrintWriter(sw));
+        return sw.toString();
+    }
+
+    /**
+     * Writes the program to the given writer and flushes it.
+     */
+    public void generate(PrintWriter w) {
+        rnd = new Random(seed);
+        out = w;
+        indent = 0;
+        lexErrorCount = syntaxErrorCount = typeErrorCount = 0;
+        fnTypes = new ArrayList<Integer>();
+        fnArity = new ArrayList<Integer>();
+        intScopes = new ArrayList<List<String>>();
+        boolScopes = new ArrayList<List<String>>();
+
+        out.println("// WumboGen -seed " + seed + " -functions " + functions + " -stmts " + stmts
+                    + " -depth " + depth + " -structs " + structs + " -expdepth " + expDepth
+                    + " -strings " + strings + " -lexerr " + lexErrors + " -syntaxerr "
+                    + syntaxErrors + " -typeerr " + typeErrors);
+        pushScope();
+        globals();
+        for (int f = 0; f < functions; f++) {
+            function("f" + f, rnd.nextInt(3), rnd.nextInt(4));
+        }
+        function("main", INT, 0);
+        popScope();
+        out.flush();
+    }
+
+    private void globals() {
+        for (int s = 0; s < structs; s++) {
+            line("struct S" + s + " {");
+            line("    int n;");
+            line("    bool t;");
+            if (s > 0) {
+                line("    struct S" + (s - 1) + " inner;");
+            }
+            line("};");
+        }
+        for (int s = 0; s < structs; s++) {
+            line("struct S" + s + " s" + s + ";");
+        }
+        int n = 2 + rnd.nextInt(3);
+        for (int i = 0; i < n; i++) {
+            declare("g" + i, i % 2 == 0 ? INT : BOOL);
+        }
+        out.println();
+    }
+
+    /**
+     * Writes a function with the given return type and number of (int)
+     * formals. Formals are all ints because the parser keeps them in reverse
+     * order, which only matters if their types differ.
+     */
+    private void function(String name, int type, int arity) {
+        fnType = type;
+        locals = 0;
+        StringBuilder b = new StringBuilder(TYPE_NAMES[type]).append(' ').append(name).append('(');
+        pushScope();
+        for (int i = 0; i < arity; i++) {
+            String formal = "p" + i;
+            intScopes.get(intScopes.size() - 1).add(formal);
+            b.append(i > 0 ? ", " : "").append("int ").append(formal);
+        }
+        line(b.append(") {").toString());
+        indent++;
+        block(stmts, depth);
+        line(type == VOID ? "return;" : "return " + exp(type, expDepth) + ";");
+        indent--;
+        line("}");
+        popScope();
+        out.println();
+
+        // added only now, so that only functions before it are called
+        fnTypes.add(type);
+        fnArity.add(arity);
+    }
+
+    /**
+     * Writes the locals and statements of a block.
+     */
+    private void block(int n, int nesting) {
+        int decls = rnd.nextInt(3) + 1;
+        for (int i = 0; i < decls; i++) {
+            String v = "v" + locals++;
+            declare(v, rnd.nextInt(2));
+        }
+        for (int i = 0; i < n; i++) {
+            stmt(Math.max(1, n / 2), nesting);
+        }
+    }
+
+    private void stmt(int inner, int nesting) {
+        if (lexErrors > 0 && rnd.nextDouble() < lexErrors) {
+            lexError();
+            return;
+        }
+        if (syntaxErrors > 0 && rnd.nextDouble() < syntaxErrors) {
+            syntaxError();
+            return;
+        }
+        if (typeErrors > 0 && rnd.nextDouble() < typeErrors) {
+            typeError();
+            return;
+        }
+
+        int kind = rnd.nextInt(nesting > 0 ? 11 : 7);
+        switch (kind) {
+        case 0:
+        case 1:
+            int type = rnd.nextInt(2);
+            line(loc(type) + " = " + exp(type, expDepth) + ";");
+            break;
+        case 2:
+            line(loc(INT) + (rnd.nextBoolean() ? "++;" : "--;"));
+            break;
+        case 3:
+            line("cin >> " + loc(INT) + ";");
+            break;
+        case 4:
+            if (rnd.nextDouble() < strings) {
+                line("cout << " + string() + ";");
+            } else {
+                line("cout << " + exp(INT, expDepth) + ";");
+            }
+            break;
+        case 5:
+            String call = call(-1, expDepth);
+            if (call == null) {
+                line("cout << " + exp(INT, expDepth) + ";");
+            } else {
+                line(call + ";");
+            }
+            break;
+        case 6:
+            if (fnType == VOID) {
+                line("return;");
+            } else {
+                line("return " + exp(fnType, expDepth) + ";");
+            }
+            break;
+        case 7:
+        case 8:
+            nested("if (" + exp(BOOL, expDepth) + ") {", inner, nesting);
+            if (kind == 8) {
+                nested("else {", inner, nesting);
+            }
+            break;
+        case 9:
+            nested("while (" + exp(BOOL, expDepth) + ") {", inner, nesting);
+            break;
+        default:
+            nested("repeat (" + exp(INT, expDepth) + ") {", inner, nesting);
+            break;
+        }
+    }
+
+    private void nested(String head, int n, int nesting) {
+        line(head);
+        indent++;
+        pushScope();
+        block(n, nesting - 1);
+        popScope();
+        indent--;
+        line("}");
+    }
+
+    /**
+     * Returns an expression of the given type (INT or BOOL) at most the given
+     * number of operators deep.
+     */
+    private String exp(int type, int d) {
+        if (d <= 0 || rnd.nextInt(4) == 0) {
+            return term(type, d);
+        }
+        if (type == INT) {
+            switch (rnd.nextInt(6)) {
+            case 0:
+                return "-" + term(INT, d - 1);
+            case 1:
+                // a literal divisor, so the program can run
+                return "(" + exp(INT, d - 1) + " / " + (1 + rnd.nextInt(9)) + ")";
+            default:
+                return "(" + exp(INT, d - 1) + " " + ARITH[rnd.nextInt(3)] + " " + exp(INT, d - 1) + ")";
+            }
+        }
+        switch (rnd.nextInt(5)) {
+        case 0:
+            return "!" + exp(BOOL, d - 1);
+        case 1:
+            return "(" + exp(BOOL, d - 1) + (rnd.nextBoolean() ? " && " : " || ") + exp(BOOL, d - 1) + ")";
+        case 2:
+            return "(" + exp(BOOL, d - 1) + (rnd.nextBoolean() ? " == " : " != ") + exp(BOOL, d - 1) + ")";
+        default:
+            return "(" + exp(INT, d - 1) + " " + RELATIONAL[rnd.nextInt(6)] + " " + exp(INT, d - 1) + ")";
+        }
+    }
+
+    private String term(int type, int d) {
+        switch (rnd.nextInt(5)) {
+        case 0:
+            if (type == INT) {
+                return Integer.toString(rnd.nextInt(1000));
+            }
+            return rnd.nextBoolean() ? "true" : "false";
+        case 1:
+            String call = call(type, d);
+            if (call != null) {
+                return call;
+            }
+            return loc(type);
+        default:
+            return loc(type);
+        }
+    }
+
+    /**
+     * Returns a call of a function declared so far that returns the given
+     * type (any type if type is -1), or null if there is none.
+     */
+    private String call(int type, int d) {
+        int n = fnTypes.size();
+        if (n == 0) {
+            return null;
+        }
+        int f = rnd.nextInt(n);
+        for (int i = 0; i < n && type >= 0 && fnTypes.get(f) != type; i++) {
+            f = (f + 1) % n;
+        }
+        if (type >= 0 && fnTypes.get(f) != type) {
+            return null;
+        }
+        StringBuilder b = new StringBuilder("f").append(f).append('(');
+        for (int i = 0; i < fnArity.get(f); i++) {
+            b.append(i > 0 ? ", " : "").append(exp(INT, Math.min(d - 1, 1)));
+        }
+        return b.append(')').toString();
+    }
+
+    /**
+     * Returns a variable or struct field of the given type.
+     */
+    private String loc(int type) {
+        if (structs > 0 && rnd.nextInt(4) == 0) {
+            int s = rnd.nextInt(structs);
+            StringBuilder b = new StringBuilder("s").append(s);
+            for (int dots = rnd.nextInt(s + 1); dots > 0; dots--) {
+                b.append(".inner");
+            }
+            return b.append(type == INT ? ".n" : ".t").toString();
+        }
+        List<List<String>> scopes = type == INT ? intScopes : boolScopes;
+        int total = 0;
+        for (List<String> scope : scopes) {
+            total += scope.size();
+        }
+        int k = rnd.nextInt(total);
+        for (List<String> scope : scopes) {
+            if (k < scope.size()) {
+                return scope.get(k);
+            }
+            k -= scope.size();
+        }
+        throw new IllegalStateException();
+    }
+
+    private String string() {
+        StringBuilder b = new StringBuilder("\"");
+        int n = 1 + rnd.nextInt(4);
+        for (int i = 0; i < n; i++) {
+            b.append(i > 0 ? " " : "").append(WORDS[rnd.nextInt(WORDS.length)]);
+        }
+        if (rnd.nextInt(3) == 0) {
+            b.append("\\n");
+        }
+        return b.append('"').toString();
+    }
+
+    private void lexError() {
+        lexErrorCount++;
+        switch (rnd.nextInt(3)) {
+        case 0:
+            line(loc(INT) + " = " + exp(INT, 1) + " " + ILLEGAL.charAt(rnd.nextInt(ILLEGAL.length()))
+                 + " " + exp(INT, 1) + ";");
+            break;
+        case 1:
+            line("cout << \"" + WORDS[rnd.nextInt(WORDS.length)] + ";");
+            break;
+        default:
+            line("cout << \"bad \\q escape\";");
+            break;
+        }
+    }
+
+    private void syntaxError() {
+        syntaxErrorCount++;
+        switch (rnd.nextInt(4)) {
+        case 0:
+            line(loc(INT) + " = " + exp(INT, expDepth));
+            break;
+        case 1:
+            line(loc(INT) + " = (" + exp(INT, expDepth) + ";");
+            break;
+        case 2:
+            line("else { }");
+            break;
+        default:
+            line("int = " + exp(INT, 1) + ";");
+            break;
+        }
+    }
+
+    private void typeError() {
+        typeErrorCount++;
+        switch (rnd.nextInt(4)) {
+        case 0:
+            line(loc(INT) + " = " + exp(BOOL, 1) + ";");
+            break;
+        case 1:
+            line("if (" + exp(INT, 1) + ") { }");
+            break;
+        case 2:
+            line(loc(BOOL) + " = " + exp(INT, 1) + " + " + exp(BOOL, 1) + ";");
+            break;
+        default:
+            if (fnTypes.isEmpty()) {
+                line("cout << " + exp(BOOL, 1) + " && " + exp(INT, 1) + ";");
+            } else {
+                line("f" + rnd.nextInt(fnTypes.size()) + "(1, 2, 3, 4, 5);");
+            }
+            break;
+        }
+    }
+
+    private void declare(String name, int type) {
+        line(TYPE_NAMES[type] + " " + name + ";");
+        (type == INT ? intScopes : boolScopes).get(intScopes.size() - 1).add(name);
+    }
+
+    private void pushScope() {
+        intScopes.add(new ArrayList<String>());
+        boolScopes.add(new ArrayList<String>());
+    }
+
+    private void popScope() {
+        intScopes.remove(intScopes.size() - 1);
+        boolScopes.remove(boolScopes.size() - 1);
+    }
+
+    private void line(String s) {
+        for (int i = 0; i < indent; i++) {
+            out.print("    ");
+        }
+        out.println(s);
+    }
+
+    private static void usage() {
+        System.err.println("usage: java WumboGen [-seed N] [-functions N] [-stmts N] [-depth N] "
+                           + "[-structs N] [-expdepth N] [-strings P] [-lexerr P] "
+                           + "[-syntaxerr P] [-typeerr P] [-o file]");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException {
+        WumboGen gen = new WumboGen();
+        String outFile = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String opt = args[i];
+                if (++i == args.length) {
+                    usage();
+                }
+                String val = args[i];
+                if (opt.equals("-seed")) {
+                    gen.seed = Long.parseLong(val);
+                } else if (opt.equals("-functions")) {
+                    gen.functions = Integer.parseInt(val);
+                } else if (opt.equals("-stmts")) {
+                    gen.stmts = Integer.parseInt(val);
+                } else if (opt.equals("-depth")) {
+                    gen.depth = Integer.parseInt(val);
+                } else if (opt.equals("-structs")) {
+                    gen.structs = Integer.parseInt(val);
+                } else if (opt.equals("-expdepth")) {
+                    gen.expDepth = Integer.parseInt(val);
+                } else if (opt.equals("-strings")) {
+                    gen.strings = Double.parseDouble(val);
+                } else if (opt.equals("-lexerr")) {
+                    gen.lexErrors = Double.parseDouble(val);
+                } else if (opt.equals("-syntaxerr")) {
+                    gen.syntaxErrors = Double.parseDouble(val);
+                } else if (opt.equals("-typeerr")) {
+                    gen.typeErrors = Double.parseDouble(val);
+                } else if (opt.equals("-o")) {
+                    outFile = val;
+                } else {
+                    usage();
+                }
+            }
+        } catch (NumberFormatException nfe) {
+            usage();
+        }
+        if (gen.functions < 0 || gen.stmts < 0 || gen.depth < 0 || gen.structs < 0
+            || gen.expDepth < 0) {
+            usage();
+        }
+
+        PrintWriter w;
+        if (outFile == null) {
+            w = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+        } else {
+            w = new PrintWriter(new BufferedWriter(new FileWriter(outFile)));
+        }
+        gen.generate(w);
+        if (outFile != null) {
+            w.close();
+        }
+        if (gen.lexErrorCount + gen.syntaxErrorCount + gen.typeErrorCount > 0) {
+            System.err.println(gen.lexErrorCount + " lexical, " + gen.syntaxErrorCount
+                               + " syntax and " + gen.typeErrorCount + " type errors");
+        }
+    }
+}
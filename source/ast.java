@@ -119,6 +119,60 @@ abstract class ASTnode {
         for (int k=0; k<indent; k++) p.print(" ");
     }
 
+    /**
+     * Return the kids of this node, in the order they appear in the source
+     * (a node with no kids returns an empty list). Subclasses with kids
+     * override this.
+     */
+    public List<? extends ASTnode> children() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * walk
+     * Visits this node and every node below it in the order they appear in
+     * the source: visitor.enter before a node's kids, and visitor.exit after
+     * them. If enter returns false the node's kids are skipped, but exit is
+     * still called.
+     *
+     * The walk keeps the nodes still to be visited on a stack of its own
+     * instead of recursing, so it works however deeply the tree is nested.
+     */
+    public void walk(ASTVisitor visitor) {
+        // the nodes to enter, and (marked in exiting) the nodes to exit
+        ASTnode[] nodes = new ASTnode[64];
+        boolean[] exiting = new boolean[64];
+        int top = 0;
+        nodes[top++] = this;
+
+        while (top > 0) {
+            ASTnode node = nodes[--top];
+            nodes[top] = null;
+            if (exiting[top]) {
+                visitor.exit(node);
+                continue;
+            }
+
+            CompilationContext.checkCancelled();
+            List<? extends ASTnode> kids = visitor.enter(node) ? node.children() : Collections.<ASTnode>emptyList();
+            if (top + kids.size() + 1 > nodes.length) {
+                int size = Math.max(nodes.length * 2, top + kids.size() + 1);
+                nodes = Arrays.copyOf(nodes, size);
+                exiting = Arrays.copyOf(exiting, size);
+            }
+            nodes[top] = node;
+            exiting[top++] = true;
+            // pushed last to first, so they are entered first to last
+            for (ListIterator<? extends ASTnode> it = kids.listIterator(kids.size()); it.hasPrevious(); ) {
+                ASTnode kid = it.previous();
+                if (kid != null) {
+                    nodes[top] = kid;
+                    exiting[top++] = false;
+                }
+            }
+        }
+    }
+
     /**
     abstract public TreeForTreeLayout<TextInBox> buildTree(TreeForTreeLayout<TextInBox> tree) {
         
@@ -137,6 +191,10 @@ class ProgramNode extends ASTnode {
     public ProgramNode(DeclListNode L) {
         myDeclList = L;
     }
+
+    public List<? extends ASTnode> children() {
+        return Collections.singletonList(myDeclList);
+    }
     
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n1 = new TextInBox("dList", 40, 20);
@@ -175,13 +233,51 @@ class ProgramNode extends ASTnode {
         }
     }
 
+    /**
+     * check
+     * Does what analyze, nameAnalysis and typeCheck do, in one walk over
+     * the program (see SemanticPass), and returns the table analyze returns.
+     * The messages are the ones the three passes report: analyze's, and
+     * the other two's only if analyze reported no error.
+     *
+     * If a pass throws, the messages reported before it did are put into
+     * the context and the exception is passed on.
+     *
+     * The walk recurses only so deep, and keeps the rest of the parts
+     * still to check on a stack of its own (see WorkStack), so it works
+     * however deeply statements are nested.
+     */
+    public SymTable check() {
+        SemanticPass pass = new SemanticPass();
+        CompilationContext previous = pass.bind();
+        try {
+            pass.run(() -> myDeclList.check(pass));
+            if (pass.enter(SemanticPass.TYPES) && !myDeclList.checkMain()) {
+                ErrMsg.fatal(0,0,"No main function");
+            }
+        } catch (java.util.concurrent.CancellationException ce) {
+            throw ce;
+        } catch (RuntimeException re) {
+            pass.finish();
+            throw re;
+        } finally {
+            CompilationContext.restore(previous);
+        }
+        return pass.finish();
+    }
+
     public void unparse(PrintWriter p, int indent) {
         myDeclList.unparse(p, indent);
     }
     
+    /**
+     * codeGen
+     * Like check, works however deeply statements are nested (see
+     * Codegen.then).
+     */
     public void codeGen(PrintWriter p) {
-        myDeclList.codeGen(p);
-    }  
+        Codegen.run(() -> myDeclList.codeGen(p));
+    }
 
     // 1 kid
     private DeclListNode myDeclList;
@@ -191,11 +287,16 @@ class DeclListNode extends ASTnode {
     public DeclListNode(List<DeclNode> S) {
         myDecls = S;
     }
+
+    public List<? extends ASTnode> children() {
+        return myDecls;
+    }
     
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent, int nameCode) {
 
         if(nameCode == 1) {
             for (DeclNode node: myDecls) {
+                CompilationContext.checkCancelled();
                 TextInBox n1 = new TextInBox("decl",30,20);
                 TextInBox n2 = new TextInBox("dList",40,20);
 
@@ -248,6 +349,7 @@ class DeclListNode extends ASTnode {
         Iterator it = myDecls.iterator();
         try {
             while (it.hasNext()) {
+            CompilationContext.checkCancelled();
             symT = ((DeclNode)it.next()).analyze(symT);
             }
             
@@ -274,7 +376,7 @@ class DeclListNode extends ASTnode {
 
     public void codeGen(PrintWriter p) {
         for (DeclNode node: myDecls) {
-            node.codeGen(p);
+            Codegen.then(() -> node.codeGen(p));
         }
     }
 
@@ -294,6 +396,7 @@ class DeclListNode extends ASTnode {
      */
     public void nameAnalysis(SymTable symTab, SymTable globalTab) {
         for (DeclNode node : myDecls) {
+            CompilationContext.checkCancelled();
             if (node instanceof VarDeclNode) {
                 ((VarDeclNode)node).nameAnalysis(symTab, globalTab);
             } else {
@@ -323,14 +426,25 @@ class DeclListNode extends ASTnode {
      */
     public void typeCheck() {
         for (DeclNode node : myDecls) {
+            CompilationContext.checkCancelled();
             node.typeCheck();
         }
     }
+
+    /**
+     * check
+     * Checks each decl in the list (see ProgramNode.check).
+     */
+    public void check(SemanticPass pass) {
+        for (DeclNode node : myDecls) {
+            pass.then(() -> node.check(pass));
+        }
+    }
     
     public boolean checkMain() {
         for(DeclNode node: myDecls) {
           if(node instanceof FnDeclNode) {
-              if(((FnDeclNode)node).getId().name().equals("main")) {
+              if(((FnDeclNode)node).getId().id() == NamePool.MAIN) {
                   return true;
               }
           }
@@ -359,6 +473,10 @@ class FormalsListNode extends ASTnode {
         myFormals = S;
     }
 
+    public List<? extends ASTnode> children() {
+        return myFormals;
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         tree.addChild(parent, new TextInBox("(",15,20));
         if(myFormals.size()>0) {
@@ -431,7 +549,7 @@ class FormalsListNode extends ASTnode {
         int offset = 4;
         for (FormalDeclNode node: myFormals) {
             try {
-              Sym s = symTab.lookupLocal(node.getId().name());
+              Sym s = symTab.lookupLocal(node.getId().id());
               s.setOffset(offset);
               offset += 4;
             } catch (EmptySymTableException ee) {
@@ -469,6 +587,10 @@ class FnBodyNode extends ASTnode {
         myStmtList = stmtList;
     }
 
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myDeclList, myStmtList);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox nDecl = new TextInBox("vList",40,20);
         TextInBox nStmt = new TextInBox("sList",40,20);
@@ -511,6 +633,15 @@ class FnBodyNode extends ASTnode {
 	    myStmtList.typeCheck(t);
     }
 
+    /**
+     * check
+     * Checks the declarations, then the statements.
+     */
+    public void check(SemanticPass pass) {
+        myDeclList.check(pass);
+        myStmtList.check(pass);
+    }
+
     public void unparse(PrintWriter p, int indent) {
         myDeclList.unparse(p, indent);
         myStmtList.unparse(p, indent);
@@ -533,8 +664,13 @@ class StmtListNode extends ASTnode {
         myStmts = S;
     }
 
+    public List<? extends ASTnode> children() {
+        return myStmts;
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         for(StmtNode node: myStmts) {
+            CompilationContext.checkCancelled();
             TextInBox nStmt = new TextInBox("stmt",35,20);
             TextInBox nParent = new TextInBox("sList",40,20);
 
@@ -566,7 +702,7 @@ class StmtListNode extends ASTnode {
     
     public void codeGen(PrintWriter p, String name) {
         for (StmtNode node: myStmts) {
-            node.codeGen(p,name);
+            Codegen.then(() -> node.codeGen(p,name));
         }
     }
 
@@ -574,6 +710,7 @@ class StmtListNode extends ASTnode {
      
         Iterator<StmtNode> it = myStmts.iterator();
           while (it.hasNext()) {
+              CompilationContext.checkCancelled();
               symT = it.next().analyze(symT);
           }
           return symT;
@@ -586,6 +723,7 @@ class StmtListNode extends ASTnode {
      */
     public void nameAnalysis(SymTable symTab) {
         for (StmtNode node : myStmts) {
+            CompilationContext.checkCancelled();
             node.nameAnalysis(symTab);
         }
     }
@@ -595,10 +733,21 @@ class StmtListNode extends ASTnode {
      */
     public void typeCheck(Type t) {
         for (StmtNode node: myStmts) {
+            CompilationContext.checkCancelled();
             node.typeCheck(t);
         }
       }
 
+    /**
+     * check
+     * Checks each statement in the list.
+     */
+    public void check(SemanticPass pass) {
+        for (StmtNode node: myStmts) {
+            pass.then(() -> node.check(pass));
+        }
+    }
+
     public void unparse(PrintWriter p, int indent) {
         Iterator<StmtNode> it = myStmts.iterator();
         while (it.hasNext()) {
@@ -615,6 +764,10 @@ class ExpListNode extends ASTnode {
         myExps = S;
     }
 
+    public List<? extends ASTnode> children() {
+        return myExps;
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         
         
@@ -763,6 +916,23 @@ abstract class DeclNode extends ASTnode {
 
     // default version of typeCheck for non-function decls
     public void typeCheck() { }
+
+    /**
+     * check
+     * Does analyze, nameAnalysis and typeCheck on this decl, one after the
+     * other (see ProgramNode.check).
+     */
+    public void check(SemanticPass pass) {
+        if (pass.enter(SemanticPass.ANALYZE)) {
+            analyze(pass.display);
+        }
+        if (pass.enter(SemanticPass.NAMES)) {
+            nameAnalysis(pass.symTab);
+        }
+        if (pass.enter(SemanticPass.TYPES)) {
+            typeCheck();
+        }
+    }
 }
 
 class VarDeclNode extends DeclNode {
@@ -772,6 +942,10 @@ class VarDeclNode extends DeclNode {
         mySize = size;
     }
 
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myType, myId);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n1 = new TextInBox("vDecl",40,20);
         tree.addChild(parent,n1);
@@ -825,7 +999,7 @@ class VarDeclNode extends DeclNode {
 	      String type = myType.toString();
 	      if(type.equals("void")) {
           ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Non-function declared void");
-          if(symT.lookupLocal(myId.toString()) != null) {
+          if(symT.lookupLocal(myId.id()) != null) {
               ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Multiply declared identifier");
           }
 	      } else if(myType instanceof StructNode) {
@@ -837,24 +1011,24 @@ class VarDeclNode extends DeclNode {
                   Sym s = new Sym(type);
                   s.setKind("struct variable");
                   s.setTable(symT.lookupGlobal(type).getTable());
-                  symT.addDecl(myId.toString(),s);
+                  symT.addDecl(myId.id(),s);
                   
                 } else {
                   ErrMsg.fatal(((StructNode)myType).getIdNode().getLineNum(),((StructNode)myType).getIdNode().getCharNum(),"Invalid name of struct type");
-                  if(symT.lookupLocal(myId.toString()) != null) {
+                  if(symT.lookupLocal(myId.id()) != null) {
                     ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Multiply declared identifier");
                   }
                 }
             } else {
               ErrMsg.fatal(((StructNode)myType).getIdNode().getLineNum(),((StructNode)myType).getIdNode().getCharNum(),"Invalid name of struct type");
-              if(symT.lookupLocal(myId.toString()) != null) {
+              if(symT.lookupLocal(myId.id()) != null) {
                 ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Multiply declared identifier");
               }
             } 
         } else {
 	        Sym s = new Sym(type);
 	        s.setKind("variable");
-	        symT.addDecl(myId.toString(),s);
+	        symT.addDecl(myId.id(),s);
        }
 	   
 	    } catch (DuplicateSymException de) {
@@ -876,7 +1050,7 @@ class VarDeclNode extends DeclNode {
 	      if(type.equals("void")) {
          
           ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Non-function declared void");
-          if(structT.lookupLocal(myId.toString()) != null) {
+          if(structT.lookupLocal(myId.id()) != null) {
               ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Multiply declared identifier");
           }
 	      } else if(myType instanceof StructNode) {
@@ -886,21 +1060,21 @@ class VarDeclNode extends DeclNode {
                     Sym s = new Sym(type);
                     s.setKind("struct variable");
                     s.setTable(symT.lookupGlobal(type).getTable());
-                    structT.addDecl(myId.toString(),s);
+                    structT.addDecl(myId.id(),s);
                 } else {
                     ErrMsg.fatal(((StructNode)myType).getIdNode().getLineNum(),((StructNode)myType).getIdNode().getCharNum(),"Invalid name of struct type");
                   }  
           } else {
             ErrMsg.fatal(((StructNode)myType).getIdNode().getLineNum(),((StructNode)myType).getIdNode().getCharNum(),"Invalid name of struct type");
-            if(structT.lookupLocal(myId.toString()) != null) {
+            if(structT.lookupLocal(myId.id()) != null) {
               ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Multiply declared identifier");
             }
           } 
         } else {
-          if(structT.lookupLocal(myId.toString()) == null) {
+          if(structT.lookupLocal(myId.id()) == null) {
             Sym s = new Sym(type);
 	          s.setKind("variable");
-	          structT.addDecl(myId.toString(),s);
+	          structT.addDecl(myId.id(),s);
           } else {
               ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Multiply declared identifier");
             }
@@ -940,7 +1114,7 @@ class VarDeclNode extends DeclNode {
 
     public Sym nameAnalysis(SymTable symTab, SymTable globalTab) {
         boolean badDecl = false;
-        String name = myId.name();
+        int name = myId.id();
         Sym sym = null;
         IdNode structId = null;
 
@@ -954,7 +1128,7 @@ class VarDeclNode extends DeclNode {
             structId = ((StructNode)myType).idNode();
 
             try {
-                sym = globalTab.lookupGlobal(structId.name());
+                sym = globalTab.lookupGlobal(structId.id());
             } catch (EmptySymTableException ex) {
                 System.err.println("Unexpected EmptySymTableException " +
                                    " in VarDeclNode.nameAnalysis");
@@ -1015,6 +1189,24 @@ class VarDeclNode extends DeclNode {
         return sym;
     }
 
+    /**
+     * check
+     * Like DeclNode.check, and if this is a local, gives it the next place
+     * in the frame (what computeOffsets does after name analysis).
+     */
+    public void check(SemanticPass pass) {
+        if (pass.enter(SemanticPass.ANALYZE)) {
+            analyze(pass.display);
+        }
+        if (pass.enter(SemanticPass.NAMES)) {
+            nameAnalysis(pass.symTab, pass.symTab);
+            if (pass.offsets) {
+                myId.sym().setOffset(pass.offset);
+                pass.offset -= 4;
+            }
+        }
+    }
+
     public void unparse(PrintWriter p, int indent) {
         addIndentation(p, indent);
         myType.unparse(p, 0);
@@ -1046,6 +1238,10 @@ class FnDeclNode extends DeclNode {
         myBody = body;
     }
 
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myType, myId, myFormalsList, myBody);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox nF = new TextInBox("fnDecl",45,20);
         tree.addChild(parent,nF);
@@ -1069,7 +1265,7 @@ class FnDeclNode extends DeclNode {
     
     public void codeGen(PrintWriter p) {
         p.println("\t.text");
-        if(myId.name().equals("main")) {
+        if(myId.id() == NamePool.MAIN) {
             
             p.println("\t.globl main");
             p.println("main:");
@@ -1084,14 +1280,17 @@ class FnDeclNode extends DeclNode {
 
         
         myBody.codeGen(p,myId.name());
-        
+        Codegen.then(() -> codeGenExit(p));
+    }
+
+    private void codeGenExit(PrintWriter p) {
         p.println("_"+myId.name()+"_Exit:");
         Codegen.generate("lw","$ra","0($fp)");
         Codegen.generate("move","$t0","$fp");
         Codegen.generate("lw","$fp","-4($fp)");
         Codegen.generate("move","$sp","$t0");
         
-        if(myId.name().equals("main")) {
+        if(myId.id() == NamePool.MAIN) {
             Codegen.generate("li","$v0","10");
             Codegen.generate("syscall");
         } else {
@@ -1103,47 +1302,58 @@ class FnDeclNode extends DeclNode {
     }
 
     public SymTable analyze(SymTable symT) {
-	    
-	    try {
-        String type = myType.toString();
-	      Sym s = new Sym(type);
-	      s.setKind("function");
-        symT.addScope();
-	      String param = myFormalsList.toString(symT);
-	    symT.removeScope();
-        s.setFunc(param);
-        
-	      symT.addDecl(myId.toString(),s);
-          symT.addScope();
-          
-	      symT = myFormalsList.analyze(symT);
-          symT = myBody.analyze(symT);
-          symT.addDecl("$scope",new Sym(myId.toString()));
-	      symT.removeScope();
-	    } catch(IllegalArgumentException ie) {
-	      System.err.println("Unexpected IllegalArgumentException in FnDeclNode.analyze");
-	      System.exit(-1);
-	    } catch(DuplicateSymException de) {
-        ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Multiply declared identifier");
+        symT = enterAnalyze(symT);
+        symT = myBody.analyze(symT);
+        return exitAnalyze(symT);
+    }
+
+    /**
+     * The part of analyze that comes before the body: declares the function
+     * (even if it is multiply declared, its formals and body are analyzed)
+     * and its formals, in a new scope.
+     */
+    private SymTable enterAnalyze(SymTable symT) {
         try {
-          symT.addScope();
-            
-	        symT = myFormalsList.analyze(symT);
-            symT = myBody.analyze(symT);
-            symT.addDecl("$scope",new Sym(myId.toString()));
-	        symT.removeScope();
+            String type = myType.toString();
+            Sym s = new Sym(type);
+            s.setKind("function");
+            symT.addScope();
+            String param = myFormalsList.toString(symT);
+            symT.removeScope();
+            s.setFunc(param);
+
+            try {
+                symT.addDecl(myId.id(),s);
+            } catch(DuplicateSymException de) {
+                ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Multiply declared identifier");
+            }
+            symT.addScope();
+            symT = myFormalsList.analyze(symT);
+        } catch(IllegalArgumentException ie) {
+            System.err.println("Unexpected IllegalArgumentException in FnDeclNode.analyze");
+            System.exit(-1);
         } catch(EmptySymTableException ee) {
-          System.err.println("Unexpected EmptySymTableException in FnDeclNode.analyze");
-          System.exit(-1);
-        } catch(DuplicateSymException de2) {
+            System.err.println("Unexpected EmptySymTableException in FnDeclNode.analyze");
+            System.exit(-1);
+        }
+        return symT;
+    }
+
+    /**
+     * The part of analyze that comes after the body: names the function's
+     * scope and leaves it.
+     */
+    private SymTable exitAnalyze(SymTable symT) {
+        try {
+            symT.addDecl(NamePool.SCOPE,new Sym(myId.toString()));
+            symT.removeScope();
+        } catch(EmptySymTableException ee) {
+            System.err.println("Unexpected EmptySymTableException in FnDeclNode.analyze");
+            System.exit(-1);
+        } catch(DuplicateSymException de) {
             System.err.println("Unexpeced exception in FnDeclNode.analyze");
         }
-	    } catch(EmptySymTableException ee) {
-	      System.err.println("Unexpected EmptySymTableException in FnDeclNode.analyze");
-	      System.exit(-1);
-	    } 
-    
-	  return symT;
+        return symT;
     }
 
     /**
@@ -1160,7 +1370,20 @@ class FnDeclNode extends DeclNode {
      *     exit scope
      */
     public Sym nameAnalysis(SymTable symTab) {
-        String name = myId.name();
+        enterNameAnalysis(symTab);
+        myBody.nameAnalysis(symTab); // process the function body
+        myFormalsList.computeOffsets(symTab);
+        myId.sym().setOffset(myBody.computeOffsets(symTab));
+        exitNameAnalysis(symTab);
+        return null;
+    }
+
+    /**
+     * The part of nameAnalysis that comes before the body: declares the
+     * function, enters its scope and processes the formals.
+     */
+    private void enterNameAnalysis(SymTable symTab) {
+        int name = myId.id();
         FnSym sym = null;
         Sym symCheckMul = null;
 
@@ -1203,11 +1426,12 @@ class FnDeclNode extends DeclNode {
         if (sym != null) {
             sym.addFormals(typeList);
         }
+    }
 
-        myBody.nameAnalysis(symTab); // process the function body
-        myFormalsList.computeOffsets(symTab);
-        myId.sym().setOffset(myBody.computeOffsets(symTab));
-
+    /**
+     * The part of nameAnalysis that comes after the body: exits the scope.
+     */
+    private void exitNameAnalysis(SymTable symTab) {
         try {
             symTab.removeScope();  // exit scope
         } catch (EmptySymTableException ex) {
@@ -1215,10 +1439,39 @@ class FnDeclNode extends DeclNode {
                                " in FnDeclNode.nameAnalysis");
             System.exit(-1);
         }
-        
-        
+    }
 
-        return null;
+    /**
+     * check
+     * Does the three passes on the declaration and formals, checks the body
+     * (with the offsets of the locals worked out as they are declared, the
+     * way computeOffsets would), then leaves the function's scope.
+     */
+    public void check(SemanticPass pass) {
+        if (pass.enter(SemanticPass.ANALYZE)) {
+            enterAnalyze(pass.display);
+        }
+        if (pass.enter(SemanticPass.NAMES)) {
+            enterNameAnalysis(pass.symTab);
+            myFormalsList.computeOffsets(pass.symTab);
+        }
+        pass.returnType = myType.type();
+        pass.offsets = true;
+        pass.offset = -8;
+
+        myBody.check(pass);
+        pass.then(() -> exit(pass));
+    }
+
+    private void exit(SemanticPass pass) {
+        pass.offsets = false;
+        if (pass.enter(SemanticPass.ANALYZE)) {
+            exitAnalyze(pass.display);
+        }
+        if (pass.enter(SemanticPass.NAMES)) {
+            myId.sym().setOffset(-(pass.offset+8));
+            exitNameAnalysis(pass.symTab);
+        }
     }
 
     /**
@@ -1257,6 +1510,10 @@ class FormalDeclNode extends DeclNode {
         myId = id;
     }
 
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myType, myId);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox nT = new TextInBox("type",30,20);
         TextInBox nID = new TextInBox("id",20,20);
@@ -1279,14 +1536,14 @@ class FormalDeclNode extends DeclNode {
 	    try {
         if(myType.toString().equals("void")) {
             ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Non-function declared void");
-            if(symT.lookupLocal(myId.toString()) != null) {
+            if(symT.lookupLocal(myId.id()) != null) {
               ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Multiply declared identifier");
             }
         }
 	      else {
             Sym s = new Sym(myType.toString());
 	          s.setKind("variable");
-	          symT.addDecl(myId.toString(),s);
+	          symT.addDecl(myId.id(),s);
        }
 	    } catch(IllegalArgumentException ie) {
 	      System.err.println("Unexpected IllegalArgumentException in FormalDeclNode.analyze");
@@ -1308,7 +1565,7 @@ class FormalDeclNode extends DeclNode {
           }
             else {
               Sym s = new Sym(myType.toString());
-                symT.addDecl(myId.toString(),s);
+                symT.addDecl(myId.id(),s);
               paran = myType.toString();         
          }
           } catch(IllegalArgumentException ie) {
@@ -1333,7 +1590,7 @@ class FormalDeclNode extends DeclNode {
      * else add a new entry to the symbol table and return that Sym
      */
     public Sym nameAnalysis(SymTable symTab) {
-        String name = myId.name();
+        int name = myId.id();
         boolean badDecl = false;
         Sym sym = null;
 
@@ -1403,6 +1660,10 @@ class StructDeclNode extends DeclNode {
         myDeclList = declList;
     }
 
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myId, myDeclList);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox nStruct = new TextInBox("sDecl",40,20);
         TextInBox nID = new TextInBox("id",20,20);
@@ -1434,21 +1695,21 @@ class StructDeclNode extends DeclNode {
 	    try {
 	      String type = myId.toString();
        
-        if(symT.lookupGlobal(type) == null) {
+        if(symT.lookupGlobal(myId.id()) == null) {
           Sym s = new Sym(type);
           s.setKind("struct");
           symT.addScope();
           SymTable structT = myDeclList.createTable(symT);
-          structT.addDecl("$scope",new Sym(myId.toString()));
+          structT.addDecl(NamePool.SCOPE,new Sym(myId.toString()));
           symT.addGarbage(structT);
           symT.removeScope();
           s.setTable(structT);
-          symT.addDecl(type,s);
+          symT.addDecl(myId.id(),s);
         } else {
           ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Multiply declared identifier");
           symT.addScope();
           SymTable structT = myDeclList.createTable(symT);
-          structT.addDecl("$scope",new Sym(myId.toString()));
+          structT.addDecl(NamePool.SCOPE,new Sym(myId.toString()));
           symT.addGarbage(structT);
           symT.removeScope();
         }
@@ -1477,7 +1738,7 @@ class StructDeclNode extends DeclNode {
      *     add a new entry to symbol table for this struct
      */
     public Sym nameAnalysis(SymTable symTab) {
-        String name = myId.name();
+        int name = myId.id();
         boolean badDecl = false;
 
         Sym symCheckMul = null;
@@ -1630,6 +1891,10 @@ class StructNode extends TypeNode {
         myId = id;
     }
 
+    public List<? extends ASTnode> children() {
+        return Collections.singletonList(myId);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
 
         return;
@@ -1674,6 +1939,24 @@ abstract class StmtNode extends ASTnode {
     abstract public void typeCheck(Type t);
     abstract public void codeGen(PrintWriter p, String name);
     abstract public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent);
+
+    /**
+     * check
+     * Does analyze, nameAnalysis and typeCheck on this statement, one after
+     * the other (see ProgramNode.check). Statements with a body override
+     * this, so that the statements in the body are checked the same way.
+     */
+    public void check(SemanticPass pass) {
+        if (pass.enter(SemanticPass.ANALYZE)) {
+            analyze(pass.display);
+        }
+        if (pass.enter(SemanticPass.NAMES)) {
+            nameAnalysis(pass.symTab);
+        }
+        if (pass.enter(SemanticPass.TYPES)) {
+            typeCheck(pass.returnType);
+        }
+    }
 }
 
 class AssignStmtNode extends StmtNode {
@@ -1681,6 +1964,10 @@ class AssignStmtNode extends StmtNode {
         myAssign = assign;
     }
 
+    public List<? extends ASTnode> children() {
+        return Collections.singletonList(myAssign);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n = new TextInBox("aExp",40,20);
         tree.addChild(parent,n);
@@ -1730,6 +2017,10 @@ class PostIncStmtNode extends StmtNode {
         myExp = exp;
     }
 
+    public List<? extends ASTnode> children() {
+        return Collections.singletonList(myExp);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n = new TextInBox("loc",30,20);
         
@@ -1799,6 +2090,10 @@ class PostDecStmtNode extends StmtNode {
         myExp = exp;
     }
 
+    public List<? extends ASTnode> children() {
+        return Collections.singletonList(myExp);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n = new TextInBox("loc",30,20);
         
@@ -1869,6 +2164,10 @@ class ReadStmtNode extends StmtNode {
         myExp = e;
     }
 
+    public List<? extends ASTnode> children() {
+        return Collections.singletonList(myExp);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox nLoc = new TextInBox("loc",30,20);
 
@@ -1950,6 +2249,10 @@ class WriteStmtNode extends StmtNode {
         myExp = exp;
     }
 
+    public List<? extends ASTnode> children() {
+        return Collections.singletonList(myExp);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n1 = new TextInBox("exp",30,20);
 
@@ -2061,6 +2364,10 @@ class IfStmtNode extends StmtNode {
         myStmtList = slist;
     }
 
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myExp, myDeclList, myStmtList);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n1 = new TextInBox("exp",30,20);
         TextInBox nVlist = new TextInBox("vList",40,20);
@@ -2116,7 +2423,7 @@ class IfStmtNode extends StmtNode {
           symT.addScope();
           symT = myDeclList.analyze(symT);
           symT = myStmtList.analyze(symT);
-          symT.addDecl("$scope",new Sym("if loop-"+symT.ifcount));
+          symT.addDecl(NamePool.SCOPE,new Sym("if loop-"+symT.ifcount));
           symT.ifcount++;
           symT.removeScope();
         } catch (EmptySymTableException ee) {
@@ -2145,9 +2452,7 @@ class IfStmtNode extends StmtNode {
 
         myStmtList.codeGen(p,name);
 
-        Codegen.genLabel(falselabel);
-
-    
+        Codegen.then(() -> Codegen.genLabel(falselabel));
     }
 
     /**
@@ -2176,12 +2481,36 @@ class IfStmtNode extends StmtNode {
      * typeCheck
      */
     public void typeCheck(Type t) {
+        typeCheckCondition();
+        myDeclList.typeCheck();
+        myStmtList.typeCheck(t);
+    }
+
+    private void typeCheckCondition() {
         Type t2 = myExp.getType();
         if((!t2.equals(new ErrorType()))&&(!t2.equals(new BoolType()))) {
             ErrMsg.fatal(myExp.lineNum(),myExp.charNum(),"Non-bool expression used as an if condition");
         }
-        myDeclList.typeCheck();
-        myStmtList.typeCheck(t);
+    }
+
+    /**
+     * check
+     * Checks the condition, then the body in a scope of its own.
+     */
+    public void check(SemanticPass pass) {
+        if (pass.enter(SemanticPass.ANALYZE)) {
+            myExp.analyze(pass.display);
+        }
+        if (pass.enter(SemanticPass.NAMES)) {
+            myExp.nameAnalysis(pass.symTab);
+        }
+        if (pass.enter(SemanticPass.TYPES)) {
+            typeCheckCondition();
+        }
+        pass.enterScope();
+        myDeclList.check(pass);
+        myStmtList.check(pass);
+        pass.then(() -> pass.exitScope("if loop-"+pass.display.ifcount++));
     }
 
     public void unparse(PrintWriter p, int indent) {
@@ -2212,6 +2541,10 @@ class IfElseStmtNode extends StmtNode {
         myElseStmtList = slist2;
     }
 
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myExp, myThenDeclList, myThenStmtList, myElseDeclList, myElseStmtList);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n1 = new TextInBox("exp",30,20);
         TextInBox nVlist = new TextInBox("vList",40,20);
@@ -2278,13 +2611,13 @@ class IfElseStmtNode extends StmtNode {
           symT.addScope();
           symT = myThenDeclList.analyze(symT);
           symT = myThenStmtList.analyze(symT);
-          symT.addDecl("$scope",new Sym("if loop-"+symT.ifcount));
+          symT.addDecl(NamePool.SCOPE,new Sym("if loop-"+symT.ifcount));
           symT.ifcount++;
           symT.removeScope();
           symT.addScope();
           symT = myElseDeclList.analyze(symT);
           symT = myElseStmtList.analyze(symT);
-          symT.addDecl("$scope",new Sym("else loop-"+symT.elsecount));
+          symT.addDecl(NamePool.SCOPE,new Sym("else loop-"+symT.elsecount));
           symT.elsecount++;
           symT.removeScope();
         } catch (EmptySymTableException ee) {
@@ -2316,12 +2649,14 @@ class IfElseStmtNode extends StmtNode {
         Codegen.generateWithComment("beq","check condition","$t0","$0",falselabel);
 
         myThenStmtList.codeGen(p,name);
-        Codegen.generate("b",endlabel);
+        Codegen.then(() -> {
+            Codegen.generate("b",endlabel);
 
-        Codegen.genLabel(falselabel);
-        myElseStmtList.codeGen(p,name);
+            Codegen.genLabel(falselabel);
+            myElseStmtList.codeGen(p,name);
 
-        Codegen.genLabel(endlabel);
+            Codegen.then(() -> Codegen.genLabel(endlabel));
+        });
     }
 
     /**
@@ -2363,16 +2698,47 @@ class IfElseStmtNode extends StmtNode {
      * typeCheck
      */
     public void typeCheck(Type t) {
-        Type t2 = myExp.getType();
-        if((!t2.equals(new ErrorType()))&&(!t2.equals(new BoolType()))) {
-            ErrMsg.fatal(myExp.lineNum(),myExp.charNum(),"Non-bool expression used as an if condition");
-        }
+        typeCheckCondition();
         myThenDeclList.typeCheck();
         myThenStmtList.typeCheck(t);
         myElseDeclList.typeCheck();
         myElseStmtList.typeCheck(t);
     }
 
+    private void typeCheckCondition() {
+        Type t2 = myExp.getType();
+        if((!t2.equals(new ErrorType()))&&(!t2.equals(new BoolType()))) {
+            ErrMsg.fatal(myExp.lineNum(),myExp.charNum(),"Non-bool expression used as an if condition");
+        }
+    }
+
+    /**
+     * check
+     * Checks the condition, then the two bodies, each in a scope
+     * of its own.
+     */
+    public void check(SemanticPass pass) {
+        if (pass.enter(SemanticPass.ANALYZE)) {
+            myExp.analyze(pass.display);
+        }
+        if (pass.enter(SemanticPass.NAMES)) {
+            myExp.nameAnalysis(pass.symTab);
+        }
+        if (pass.enter(SemanticPass.TYPES)) {
+            typeCheckCondition();
+        }
+        pass.enterScope();
+        myThenDeclList.check(pass);
+        myThenStmtList.check(pass);
+        pass.then(() -> {
+            pass.exitScope("if loop-"+pass.display.ifcount++);
+            pass.enterScope();
+            myElseDeclList.check(pass);
+            myElseStmtList.check(pass);
+            pass.then(() -> pass.exitScope("else loop-"+pass.display.elsecount++));
+        });
+    }
+
     public void unparse(PrintWriter p, int indent) {
         addIndentation(p, indent);
         p.print("if (");
@@ -2405,6 +2771,10 @@ class WhileStmtNode extends StmtNode {
         myStmtList = slist;
     }
 
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myExp, myDeclList, myStmtList);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n1 = new TextInBox("exp",30,20);
         TextInBox nVlist = new TextInBox("vList",40,20);
@@ -2471,9 +2841,10 @@ class WhileStmtNode extends StmtNode {
         Codegen.genPop("$t0");
         Codegen.generateWithComment("beq","evaluate condition","$t0","$0",falselabel);
         myStmtList.codeGen(p,name);
-        Codegen.generate("b",looplabel);
-        Codegen.genLabel(falselabel);
-    
+        Codegen.then(() -> {
+            Codegen.generate("b",looplabel);
+            Codegen.genLabel(falselabel);
+        });
     }
 
     public SymTable analyze(SymTable symT) {
@@ -2482,7 +2853,7 @@ class WhileStmtNode extends StmtNode {
           symT.addScope();
           symT = myDeclList.analyze(symT);
           symT = myStmtList.analyze(symT);
-          symT.addDecl("$scope",new Sym("while loop-"+symT.whilecount));
+          symT.addDecl(NamePool.SCOPE,new Sym("while loop-"+symT.whilecount));
           symT.whilecount++;
           symT.removeScope();
         } catch (EmptySymTableException ee) {
@@ -2521,12 +2892,36 @@ class WhileStmtNode extends StmtNode {
      * typeCheck
      */
     public void typeCheck(Type t) {
+        typeCheckCondition();
+        myDeclList.typeCheck();
+        myStmtList.typeCheck(t);
+    }
+
+    private void typeCheckCondition() {
         Type t2 = myExp.getType();
         if((!t2.equals(new ErrorType()))&&(!t2.equals(new BoolType()))) {
             ErrMsg.fatal(myExp.lineNum(),myExp.charNum(),"Non-bool expression used as a while condition");
         }
-        myDeclList.typeCheck();
-        myStmtList.typeCheck(t);
+    }
+
+    /**
+     * check
+     * Checks the condition, then the body in a scope of its own.
+     */
+    public void check(SemanticPass pass) {
+        if (pass.enter(SemanticPass.ANALYZE)) {
+            myExp.analyze(pass.display);
+        }
+        if (pass.enter(SemanticPass.NAMES)) {
+            myExp.nameAnalysis(pass.symTab);
+        }
+        if (pass.enter(SemanticPass.TYPES)) {
+            typeCheckCondition();
+        }
+        pass.enterScope();
+        myDeclList.check(pass);
+        myStmtList.check(pass);
+        pass.then(() -> pass.exitScope("while loop-"+pass.display.whilecount++));
     }
 
     public void unparse(PrintWriter p, int indent) {
@@ -2553,6 +2948,10 @@ class RepeatStmtNode extends StmtNode {
         myStmtList = slist;
     }
 
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myExp, myDeclList, myStmtList);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n1 = new TextInBox("exp",30,20);
         TextInBox nVlist = new TextInBox("vList",40,20);
@@ -2612,7 +3011,7 @@ class RepeatStmtNode extends StmtNode {
           symT.addScope();
           symT = myDeclList.analyze(symT);
           symT = myStmtList.analyze(symT);
-          symT.addDecl("$scope",new Sym("repeat loop-"+symT.repeatcount));
+          symT.addDecl(NamePool.SCOPE,new Sym("repeat loop-"+symT.repeatcount));
           symT.repeatcount++;
           symT.removeScope();
         } catch (EmptySymTableException ee) {
@@ -2651,12 +3050,43 @@ class RepeatStmtNode extends StmtNode {
      * typeCheck
      */
     public void typeCheck(Type t) {
+        typeCheckCondition();
+        myDeclList.typeCheck();
+        myStmtList.typeCheck(t);
+    }
+
+    private void typeCheckCondition() {
         Type t2 = myExp.getType();
         if((!t2.equals(new ErrorType()))&&(!t2.equals(new IntType()))) {
             ErrMsg.fatal(myExp.lineNum(),myExp.charNum(),"Non-integer expression used as a repeat clause");
         }
-        myDeclList.typeCheck();
-        myStmtList.typeCheck(t);
+    }
+
+    /**
+     * check
+     * Checks the clause, then the body in a scope of its own. The locals of
+     * a repeat loop get no place in the frame (computeOffsets does not reach
+     * them).
+     */
+    public void check(SemanticPass pass) {
+        if (pass.enter(SemanticPass.ANALYZE)) {
+            myExp.analyze(pass.display);
+        }
+        if (pass.enter(SemanticPass.NAMES)) {
+            myExp.nameAnalysis(pass.symTab);
+        }
+        if (pass.enter(SemanticPass.TYPES)) {
+            typeCheckCondition();
+        }
+        pass.enterScope();
+        boolean offsets = pass.offsets;
+        pass.offsets = false;
+        myDeclList.check(pass);
+        myStmtList.check(pass);
+        pass.then(() -> {
+            pass.offsets = offsets;
+            pass.exitScope("repeat loop-"+pass.display.repeatcount++);
+        });
     }
 
     public void unparse(PrintWriter p, int indent) {
@@ -2682,6 +3112,10 @@ class CallStmtNode extends StmtNode {
         myCall = call;
     }
 
+    public List<? extends ASTnode> children() {
+        return Collections.singletonList(myCall);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox nCall = new TextInBox("fncall",50,20);
 
@@ -2735,6 +3169,13 @@ class ReturnStmtNode extends StmtNode {
         myExp = exp;
     }
 
+    public List<? extends ASTnode> children() {
+        if (myExp == null) {
+            return Collections.<ASTnode>emptyList();
+        }
+        return Collections.singletonList(myExp);
+    }
+
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox n1 = new TextInBox("exp",30,20);
         
@@ -3100,9 +3541,10 @@ class FalseNode extends ExpNode {
 }
 
 class IdNode extends ExpNode {
-    public IdNode(int lineNum, int charNum, String strVal) {
+    public IdNode(int lineNum, int charNum, int id, String strVal) {
         myLineNum = lineNum;
         myCharNum = charNum;
+        myId = id;
         myStrVal = strVal;
     }
     
@@ -3113,10 +3555,10 @@ class IdNode extends ExpNode {
 
     public SymTable analyze(SymTable symT) {
         try {
-            if(symT.lookupGlobal(myStrVal) == null) {
+            if(symT.lookupGlobal(myId) == null) {
                 ErrMsg.fatal(myLineNum,myCharNum,"Undeclared identifier");
             } else {
-                link = symT.lookupGlobal(myStrVal);
+                link = symT.lookupGlobal(myId);
             }
         } catch (EmptySymTableException ee) {
             System.err.println("Unexpected EmptySymTableException in IdNode.analyze");
@@ -3162,6 +3604,13 @@ class IdNode extends ExpNode {
         return myStrVal;
     }
 
+    /**
+     * Return the id of this ID's name in the NamePool.
+     */
+    public int id() {
+        return myId;
+    }
+
     /**
      * Return the symbol associated with this ID.
      */
@@ -3193,7 +3642,7 @@ class IdNode extends ExpNode {
         Sym sym = null;
 
         try {
-          sym = symTab.lookupGlobal(myStrVal);
+          sym = symTab.lookupGlobal(myId);
         } catch (EmptySymTableException ex) {
             System.err.println("Unexpected EmptySymTableException " +
                                " in IdNode.nameAnalysis");
@@ -3251,6 +3700,7 @@ class IdNode extends ExpNode {
 
     private int myLineNum;
     private int myCharNum;
+    private int myId;
     private String myStrVal;
     private Sym mySym;
     private Sym link;
@@ -3262,6 +3712,10 @@ class DotAccessExpNode extends ExpNode {
         myId = id;
         mySym = null;
     }
+
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myLoc, myId);
+    }
     
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox nLoc = new TextInBox("loc",30,20);
@@ -3318,11 +3772,11 @@ class DotAccessExpNode extends ExpNode {
                    
                 } else {
                   
-                  Sym s = this.getTable(symT).lookupGlobal(myId.toString());
+                  Sym s = this.getTable(symT).lookupGlobal(myId.id());
                   if(s == null) {
                     
                     SymTable previous = ((DotAccessExpNode)myLoc).getTable(symT);
-                    Sym check = previous.lookupGlobal(((DotAccessExpNode)myLoc).getId().toString());
+                    Sym check = previous.lookupGlobal(((DotAccessExpNode)myLoc).getId().id());
                     if(!check.getKind().equals("struct variable")) {
                         ErrMsg.fatal(((DotAccessExpNode)myLoc).getId().getLineNum(),((DotAccessExpNode)myLoc).getId().getCharNum(),"Dot-access of non-struct type");
                     } else {
@@ -3341,7 +3795,7 @@ class DotAccessExpNode extends ExpNode {
             }
             if(myLoc instanceof IdNode) {
                 
-                Sym s = symT.lookupGlobal(((IdNode)myLoc).toString());
+                Sym s = symT.lookupGlobal(((IdNode)myLoc).id());
                 if(s == null) {
                     
                     symT = myLoc.analyze(symT);
@@ -3354,7 +3808,7 @@ class DotAccessExpNode extends ExpNode {
                     hasError = true;
                 } else {
                     SymTable structT = s.getTable();
-                    if(structT.lookupGlobal(myId.toString()) == null) {
+                    if(structT.lookupGlobal(myId.id()) == null) {
                         ErrMsg.fatal(myId.getLineNum(),myId.getCharNum(),"Invalid struct field name");
                         hasError = true;
                     } else {
@@ -3377,12 +3831,12 @@ class DotAccessExpNode extends ExpNode {
         try {
           if(myLoc instanceof DotAccessExpNode) {
             SymTable structT = ((DotAccessExpNode)myLoc).getTable(symT);
-            Sym s = structT.lookupGlobal(((DotAccessExpNode)myLoc).getId().toString());
+            Sym s = structT.lookupGlobal(((DotAccessExpNode)myLoc).getId().id());
           
             sol = s.getTable();
             
           } else {
-            Sym s = symT.lookupGlobal(((IdNode)myLoc).toString());
+            Sym s = symT.lookupGlobal(((IdNode)myLoc).id());
          
             sol =  s.getTable();
           }
@@ -3473,7 +3927,7 @@ class DotAccessExpNode extends ExpNode {
         if (!badAccess) {
 
             try {
-                sym = structSymTab.lookupGlobal(myId.name()); // lookup
+                sym = structSymTab.lookupGlobal(myId.id()); // lookup
             } catch (EmptySymTableException ex) {
                 System.err.println("Unexpected EmptySymTableException " +
                                  " in DotAccessExpNode.nameAnalysis");
@@ -3535,6 +3989,10 @@ class AssignNode extends ExpNode {
         myLhs = lhs;
         myExp = exp;
     }
+
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myLhs, myExp);
+    }
     
     public void buildTree(DefaultTreeForTreeLayout<TextInBox> tree, TextInBox parent) {
         TextInBox nLoc= new TextInBox("loc",30,20);
@@ -3708,6 +4166,13 @@ class CallExpNode extends ExpNode {
         myExpList = elist;
     }
 
+    public List<? extends ASTnode> children() {
+        if (myExpList == null) {
+            return Collections.singletonList(myId);
+        }
+        return Arrays.asList(myId, myExpList);
+    }
+
     public CallExpNode(IdNode name) {
         myId = name;
         myExpList = new ExpListNode(new LinkedList<ExpNode>());
@@ -3851,6 +4316,10 @@ abstract class UnaryExpNode extends ExpNode {
         myExp = exp;
     }
 
+    public List<? extends ASTnode> children() {
+        return Collections.singletonList(myExp);
+    }
+
     
 
 
@@ -3893,6 +4362,10 @@ abstract class BinaryExpNode extends ExpNode {
         myExp2 = exp2;
     }
 
+    public List<? extends ASTnode> children() {
+        return Arrays.asList(myExp1, myExp2);
+    }
+
 
     /**
      * Return the line number for this binary expression node.
@@ -5,6 +5,52 @@
   See below for copyright notice, license, and disclaimer.
   New releases from http://www.cs.princeton.edu/~appel/modern/java/JLex/
 
+  Local changes for the Wumbo compiler visualizer:
+   The transition tables (yy_acpt, yy_cmap, yy_rmap, yy_nxt), along with
+     yy_state_dtrans, yy_error_string and the YY_ constants, are now static
+     final fields of the generated lexer, and unpackFromString is static.
+     The tables are unpacked once, when the lexer class is initialized,
+     instead of every time a lexer is constructed.
+   New %switch directive, which makes the generated lexer direct-coded:
+     instead of the yy_cmap, yy_rmap and yy_nxt tables it gets a yy_next
+     method that switches on the state and calls a method with one switch
+     on the input character for each distinct row of the transition table.
+     Characters past the end of the character class map have no
+     transitions.
+   New %comb directive, which compresses the transition table by row
+     displacement: each row keeps only the entries that differ from its
+     most common next state, the rows share one yy_nxt array at their
+     own yy_base offsets, and yy_check tells which row owns each slot.
+     The tables are emitted as byte or short arrays when their values
+     fit.  %switch wins if both are given.
+   New %throughput directive, for lexers that read a lot of input.  The
+     input buffer starts at 512 characters and doubles when the token
+     being read fills more than half of it, or, up to 64K characters,
+     when a read fills all the room there was; refilling moves the unread
+     part with one arraycopy, off the path that returns the next
+     character.  The lexer also gets yychars(), a CharSequence over the
+     current token in the buffer, which does not allocate and is only
+     good until the next token is read.
+   Subset construction works out the moves and epsilon closures for all
+     the unmarked DFA states at once, on the common ForkJoinPool, and then
+     registers the new states in the same order as the sequential loop,
+     so the DFA is numbered exactly as before.  The row and column
+     equivalence scans in CMinimize.reduce also run in parallel.  The
+     partition refinement in CMinimize.minimize stays sequential: each
+     split renumbers states that later comparisons in the same pass
+     look at, and the numbering of the output depends on that order.
+     Its consistency checks look a split group up by index instead of
+     searching the whole list of groups, which made it quadratic.
+   The NFA state sets behind DFA states are CStateSets: a plain long[]
+     bit set (CDenseStateSet) when the NFA has at most
+     CStateSet.DENSE_LIMIT states, and a SparseBitSet otherwise.
+     CNfa2Dfa finds the DFA state for a set through a CStateSetCache,
+     which keeps each set's hash code beside it, instead of a Hashtable
+     that hashed the set again on every lookup.  Epsilon closure tests
+     membership with the bit set instead of searching the state vector,
+     and reads the states back off the bits in label order instead of
+     sorting them.
+
   Version 1.2.6, 2/7/03, [C. Scott Ananian]
    Renamed 'assert' function 'ASSERT' to accomodate Java 1.4's new keyword.
    Fixed a bug which certain forms of comment in the JLex directives section
@@ -182,6 +228,8 @@ import java.util.Enumeration;
 import java.util.Stack;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 /******************************
   Questions:
@@ -250,7 +298,7 @@ class CSpec
   /* DFA Machine. */
   Vector m_dfa_states; /* Vector of states, with index
 				 corresponding to label. */
-  Hashtable m_dfa_sets; /* Hashtable taking set of NFA states
+  CStateSetCache m_dfa_sets; /* Takes set of NFA states
 				  to corresponding DFA state, 
 				  if the latter exists. */
   
@@ -291,6 +339,9 @@ class CSpec
   boolean m_unix;
   boolean m_public;
   boolean m_ignorecase;
+  boolean m_switch_coded;
+  boolean m_comb;
+  boolean m_throughput;
 
   char m_init_code[];
   int m_init_read;
@@ -373,6 +424,9 @@ class CSpec
         m_public = false;
 	m_yyeof = false;
 	m_ignorecase = false;
+	m_switch_coded = false;
+	m_comb = false;
+	m_throughput = false;
 
 	/* Initialize variables for JLex runtime options. */
 	m_verbose = true;
@@ -381,7 +435,7 @@ class CSpec
 	m_nfa_states = new Vector();
 	
 	m_dfa_states = new Vector();
-	m_dfa_sets = new Hashtable();
+	m_dfa_sets = new CStateSetCache();
 
 	m_dtrans_vector = new Vector();
 	m_dtrans_ncols = CUtility.MAX_SEVEN_BIT + 1;
@@ -429,6 +483,12 @@ class CEmit
   private CSpec m_spec;
   private java.io.PrintWriter m_outstream;
 
+  /* Compressed tables: their size, and the unpacking helpers
+     they need. */
+  private int m_comb_bytes;
+  private boolean m_comb_bytes_used;
+  private boolean m_comb_shorts_used;
+
   /***************************************************************
     Constants: Anchor Types
     **************************************************************/
@@ -463,6 +523,9 @@ class CEmit
       {
 	m_spec = null;
 	m_outstream = null;
+	m_comb_bytes = 0;
+	m_comb_bytes_used = false;
+	m_comb_shorts_used = false;
       }
 
   /***************************************************************
@@ -643,22 +706,26 @@ class CEmit
 	  }
 	  
 	  /* Constants */
-	  m_outstream.println("\tprivate final int YY_BUFFER_SIZE = 512;");
+	  m_outstream.println("\tprivate static final int YY_BUFFER_SIZE = 512;");
+	  if (m_spec.m_throughput)
+	    {
+	      m_outstream.println("\tprivate static final int YY_BUFFER_MAX = 65536;");
+	    }
 
-	  m_outstream.println("\tprivate final int YY_F = -1;");
-	  m_outstream.println("\tprivate final int YY_NO_STATE = -1;");
+	  m_outstream.println("\tprivate static final int YY_F = -1;");
+	  m_outstream.println("\tprivate static final int YY_NO_STATE = -1;");
 
-	  m_outstream.println("\tprivate final int YY_NOT_ACCEPT = 0;");
-	  m_outstream.println("\tprivate final int YY_START = 1;");
-	  m_outstream.println("\tprivate final int YY_END = 2;");
-	  m_outstream.println("\tprivate final int YY_NO_ANCHOR = 4;");
+	  m_outstream.println("\tprivate static final int YY_NOT_ACCEPT = 0;");
+	  m_outstream.println("\tprivate static final int YY_START = 1;");
+	  m_outstream.println("\tprivate static final int YY_END = 2;");
+	  m_outstream.println("\tprivate static final int YY_NO_ANCHOR = 4;");
 
 	  // internal
-	  m_outstream.println("\tprivate final int YY_BOL = "+m_spec.BOL+";");
-	  m_outstream.println("\tprivate final int YY_EOF = "+m_spec.EOF+";");
+	  m_outstream.println("\tprivate static final int YY_BOL = "+m_spec.BOL+";");
+	  m_outstream.println("\tprivate static final int YY_EOF = "+m_spec.EOF+";");
 	  // external
 	  if (m_spec.m_integer_type || true == m_spec.m_yyeof)
-	    m_outstream.println("\tpublic final int YYEOF = -1;");
+	    m_outstream.println("\tpublic static final int YYEOF = -1;");
 	  
           /* User specified class code. */
 	  if (null != m_spec.m_class_code)
@@ -829,7 +896,7 @@ class CEmit
 		  CUtility.ASSERT(null != state);
 		}
 	      
-	      m_outstream.println("\tprivate final int " 
+	      m_outstream.println("\tprivate static final int " 
 				     + state 
 				     + " = " 
 				     + (m_spec.m_states.get(state)).toString() 
@@ -837,7 +904,7 @@ class CEmit
 	      /*++index;*/
 	    }
 
-	  m_outstream.println("\tprivate final int yy_state_dtrans[] = {");
+	  m_outstream.println("\tprivate static final int yy_state_dtrans[] = {");
 	  for (index = 0; index < m_spec.m_state_dtrans.length; ++index)
 	    {
 	      m_outstream.print("\t\t" + m_spec.m_state_dtrans[index]);
@@ -909,57 +976,64 @@ class CEmit
 	m_outstream.println("\t}");*/
 
 	/* Function: yy_advance */
-	m_outstream.println("\tprivate int yy_advance ()");
-	m_outstream.println("\t\tthrows java.io.IOException {");
-	/*m_outstream.println("\t\t{");*/
-	m_outstream.println("\t\tint next_read;");
-	m_outstream.println("\t\tint i;");
-	m_outstream.println("\t\tint j;");
-	m_outstream.println();
+	if (m_spec.m_throughput)
+	  {
+	    emit_adaptive_advance();
+	  }
+	else
+	  {
+	    m_outstream.println("\tprivate int yy_advance ()");
+	    m_outstream.println("\t\tthrows java.io.IOException {");
+	    /*m_outstream.println("\t\t{");*/
+	    m_outstream.println("\t\tint next_read;");
+	    m_outstream.println("\t\tint i;");
+	    m_outstream.println("\t\tint j;");
+	    m_outstream.println();
 
-	m_outstream.println("\t\tif (yy_buffer_index < yy_buffer_read) {");
-	m_outstream.println("\t\t\treturn yy_buffer[yy_buffer_index++];");
-	/*m_outstream.println("\t\t\t++yy_buffer_index;");*/
-	m_outstream.println("\t\t}");
-	m_outstream.println();
+	    m_outstream.println("\t\tif (yy_buffer_index < yy_buffer_read) {");
+	    m_outstream.println("\t\t\treturn yy_buffer[yy_buffer_index++];");
+	    /*m_outstream.println("\t\t\t++yy_buffer_index;");*/
+	    m_outstream.println("\t\t}");
+	    m_outstream.println();
 
-	m_outstream.println("\t\tif (0 != yy_buffer_start) {");
-	m_outstream.println("\t\t\ti = yy_buffer_start;");
-	m_outstream.println("\t\t\tj = 0;");
-	m_outstream.println("\t\t\twhile (i < yy_buffer_read) {");
-	m_outstream.println("\t\t\t\tyy_buffer[j] = yy_buffer[i];");
-	m_outstream.println("\t\t\t\t++i;");
-	m_outstream.println("\t\t\t\t++j;");
-	m_outstream.println("\t\t\t}");
-	m_outstream.println("\t\t\tyy_buffer_end = yy_buffer_end - yy_buffer_start;");
-	m_outstream.println("\t\t\tyy_buffer_start = 0;");
-	m_outstream.println("\t\t\tyy_buffer_read = j;");
-	m_outstream.println("\t\t\tyy_buffer_index = j;");
-	m_outstream.println("\t\t\tnext_read = yy_reader.read(yy_buffer,");
-	m_outstream.println("\t\t\t\t\tyy_buffer_read,");
-	m_outstream.println("\t\t\t\t\tyy_buffer.length - yy_buffer_read);");
-	m_outstream.println("\t\t\tif (-1 == next_read) {");
-	m_outstream.println("\t\t\t\treturn YY_EOF;");
-	m_outstream.println("\t\t\t}");
-	m_outstream.println("\t\t\tyy_buffer_read = yy_buffer_read + next_read;");
-	m_outstream.println("\t\t}");
-	m_outstream.println();
+	    m_outstream.println("\t\tif (0 != yy_buffer_start) {");
+	    m_outstream.println("\t\t\ti = yy_buffer_start;");
+	    m_outstream.println("\t\t\tj = 0;");
+	    m_outstream.println("\t\t\twhile (i < yy_buffer_read) {");
+	    m_outstream.println("\t\t\t\tyy_buffer[j] = yy_buffer[i];");
+	    m_outstream.println("\t\t\t\t++i;");
+	    m_outstream.println("\t\t\t\t++j;");
+	    m_outstream.println("\t\t\t}");
+	    m_outstream.println("\t\t\tyy_buffer_end = yy_buffer_end - yy_buffer_start;");
+	    m_outstream.println("\t\t\tyy_buffer_start = 0;");
+	    m_outstream.println("\t\t\tyy_buffer_read = j;");
+	    m_outstream.println("\t\t\tyy_buffer_index = j;");
+	    m_outstream.println("\t\t\tnext_read = yy_reader.read(yy_buffer,");
+	    m_outstream.println("\t\t\t\t\tyy_buffer_read,");
+	    m_outstream.println("\t\t\t\t\tyy_buffer.length - yy_buffer_read);");
+	    m_outstream.println("\t\t\tif (-1 == next_read) {");
+	    m_outstream.println("\t\t\t\treturn YY_EOF;");
+	    m_outstream.println("\t\t\t}");
+	    m_outstream.println("\t\t\tyy_buffer_read = yy_buffer_read + next_read;");
+	    m_outstream.println("\t\t}");
+	    m_outstream.println();
 
-	m_outstream.println("\t\twhile (yy_buffer_index >= yy_buffer_read) {");
-	m_outstream.println("\t\t\tif (yy_buffer_index >= yy_buffer.length) {");
-	m_outstream.println("\t\t\t\tyy_buffer = yy_double(yy_buffer);");
-	m_outstream.println("\t\t\t}");
-	m_outstream.println("\t\t\tnext_read = yy_reader.read(yy_buffer,");
-	m_outstream.println("\t\t\t\t\tyy_buffer_read,");
-	m_outstream.println("\t\t\t\t\tyy_buffer.length - yy_buffer_read);");
-	m_outstream.println("\t\t\tif (-1 == next_read) {");
-	m_outstream.println("\t\t\t\treturn YY_EOF;");
-	m_outstream.println("\t\t\t}");
-	m_outstream.println("\t\t\tyy_buffer_read = yy_buffer_read + next_read;");
-	m_outstream.println("\t\t}");
+	    m_outstream.println("\t\twhile (yy_buffer_index >= yy_buffer_read) {");
+	    m_outstream.println("\t\t\tif (yy_buffer_index >= yy_buffer.length) {");
+	    m_outstream.println("\t\t\t\tyy_buffer = yy_double(yy_buffer);");
+	    m_outstream.println("\t\t\t}");
+	    m_outstream.println("\t\t\tnext_read = yy_reader.read(yy_buffer,");
+	    m_outstream.println("\t\t\t\t\tyy_buffer_read,");
+	    m_outstream.println("\t\t\t\t\tyy_buffer.length - yy_buffer_read);");
+	    m_outstream.println("\t\t\tif (-1 == next_read) {");
+	    m_outstream.println("\t\t\t\treturn YY_EOF;");
+	    m_outstream.println("\t\t\t}");
+	    m_outstream.println("\t\t\tyy_buffer_read = yy_buffer_read + next_read;");
+	    m_outstream.println("\t\t}");
 
-	m_outstream.println("\t\treturn yy_buffer[yy_buffer_index++];");
-	m_outstream.println("\t}");
+	    m_outstream.println("\t\treturn yy_buffer[yy_buffer_index++];");
+	    m_outstream.println("\t}");
+	  }
 	
 	/* Function: yy_move_end */
 	m_outstream.println("\tprivate void yy_move_end () {");
@@ -1031,6 +1105,30 @@ class CEmit
 	m_outstream.println("\t\treturn yy_buffer_end - yy_buffer_start;");
 	m_outstream.println("\t}");
 
+	/* Function: yychars */
+	if (m_spec.m_throughput)
+	  {
+	    m_outstream.println("\tprivate final java.lang.CharSequence yy_text = "
+				+ "new java.lang.CharSequence() {");
+	    m_outstream.println("\t\tpublic int length () {");
+	    m_outstream.println("\t\t\treturn yy_buffer_end - yy_buffer_start;");
+	    m_outstream.println("\t\t}");
+	    m_outstream.println("\t\tpublic char charAt (int i) {");
+	    m_outstream.println("\t\t\treturn yy_buffer[yy_buffer_start + i];");
+	    m_outstream.println("\t\t}");
+	    m_outstream.println("\t\tpublic java.lang.CharSequence subSequence "
+				+ "(int from, int to) {");
+	    m_outstream.println("\t\t\treturn toString().subSequence(from, to);");
+	    m_outstream.println("\t\t}");
+	    m_outstream.println("\t\tpublic java.lang.String toString () {");
+	    m_outstream.println("\t\t\treturn yytext();");
+	    m_outstream.println("\t\t}");
+	    m_outstream.println("\t};");
+	    m_outstream.println("\tprivate java.lang.CharSequence yychars () {");
+	    m_outstream.println("\t\treturn yy_text;");
+	    m_outstream.println("\t}");
+	  }
+
 	/* Function: yy_double */
 	m_outstream.println("\tprivate char[] yy_double (char buf[]) {");
 	m_outstream.println("\t\tint i;");
@@ -1043,9 +1141,9 @@ class CEmit
 	m_outstream.println("\t}");
 
 	/* Function: yy_error */
-	m_outstream.println("\tprivate final int YY_E_INTERNAL = 0;");
-	m_outstream.println("\tprivate final int YY_E_MATCH = 1;");
-	m_outstream.println("\tprivate java.lang.String yy_error_string[] = {");
+	m_outstream.println("\tprivate static final int YY_E_INTERNAL = 0;");
+	m_outstream.println("\tprivate static final int YY_E_MATCH = 1;");
+	m_outstream.println("\tprivate static final java.lang.String yy_error_string[] = {");
 	m_outstream.println("\t\t\"Error: Internal error.\\n\",");
 	m_outstream.println("\t\t\"Error: Unmatched input.\\n\"");
 	m_outstream.println("\t};");
@@ -1072,7 +1170,7 @@ class CEmit
 	// Added 6/24/98 Raimondas Lencevicius
 	// May be made more efficient by replacing String operations
 	// Assumes correctly formed input String. Performs no error checking
-	m_outstream.println("\tprivate int[][] unpackFromString"+
+	m_outstream.println("\tprivate static int[][] unpackFromString"+
 			    "(int size1, int size2, String st) {");
 	m_outstream.println("\t\tint colonIndex = -1;");
 	m_outstream.println("\t\tString lengthString;");
@@ -1169,7 +1267,7 @@ class CEmit
 	    CUtility.ASSERT(null != m_outstream);
 	  }
 
-	m_outstream.println("\tprivate int yy_acpt[] = {");
+	m_outstream.println("\tprivate static final int yy_acpt[] = {");
 	size = m_spec.m_accept_vector.size();
 	for (elem = 0; elem < size; ++elem)
 	  {
@@ -1216,13 +1314,26 @@ class CEmit
 	int[] yy_cmap = new int[m_spec.m_ccls_map.length];
 	for (i = 0; i < m_spec.m_ccls_map.length; ++i)
 	    yy_cmap[i] = m_spec.m_col_map[m_spec.m_ccls_map[i]];
-	m_outstream.print("\tprivate int yy_cmap[] = unpackFromString(");
+
+	if (m_spec.m_switch_coded)
+	  {
+	    emit_switch(yy_cmap);
+	    return;
+	  }
+
+	if (m_spec.m_comb)
+	  {
+	    emit_comb(yy_cmap);
+	    return;
+	  }
+
+	m_outstream.print("\tprivate static final int yy_cmap[] = unpackFromString(");
 	emit_table_as_string(new int[][] { yy_cmap });
 	m_outstream.println(")[0];");
 	m_outstream.println();
 
 	// CSA: modified yy_rmap to use string packing 9-Aug-1999
-	m_outstream.print("\tprivate int yy_rmap[] = unpackFromString(");
+	m_outstream.print("\tprivate static final int yy_rmap[] = unpackFromString(");
 	emit_table_as_string(new int[][] { m_spec.m_row_map });
 	m_outstream.println(")[0];");
 	m_outstream.println();
@@ -1238,12 +1349,389 @@ class CEmit
 	    yy_nxt[elem] = dtrans.m_dtrans;
 	}
 	m_outstream.print
-	  ("\tprivate int yy_nxt[][] = unpackFromString(");
+	  ("\tprivate static final int yy_nxt[][] = unpackFromString(");
 	emit_table_as_string(yy_nxt);
 	m_outstream.println(");");
 	m_outstream.println();
       }
 
+  /***************************************************************
+    Function: emit_adaptive_advance
+    Description: Emits yy_advance for a lexer in %throughput
+    mode.  The fast path only reads the next character; refilling
+    is left to yy_refill, which moves the unread part of the buffer
+    to its front with one arraycopy, and doubles the buffer when
+    that part fills more than half of it, or, up to YY_BUFFER_MAX,
+    when the last read filled all the room there was, so that long
+    inputs are read in fewer, bigger pieces.
+    **************************************************************/
+  private void emit_adaptive_advance
+    (
+     )
+      throws java.io.IOException
+      {
+	m_outstream.println("\tprivate boolean yy_read_filled = false;");
+	m_outstream.println("\tprivate int yy_advance ()");
+	m_outstream.println("\t\tthrows java.io.IOException {");
+	m_outstream.println("\t\tif (yy_buffer_index < yy_buffer_read) {");
+	m_outstream.println("\t\t\treturn yy_buffer[yy_buffer_index++];");
+	m_outstream.println("\t\t}");
+	m_outstream.println("\t\treturn yy_refill();");
+	m_outstream.println("\t}");
+
+	m_outstream.println("\tprivate int yy_refill ()");
+	m_outstream.println("\t\tthrows java.io.IOException {");
+	m_outstream.println("\t\tint next_read;");
+	m_outstream.println("\t\tint room;");
+	m_outstream.println();
+	m_outstream.println("\t\tif (0 != yy_buffer_start) {");
+	m_outstream.println("\t\t\tjava.lang.System.arraycopy(yy_buffer, yy_buffer_start,");
+	m_outstream.println("\t\t\t\t\tyy_buffer, 0, yy_buffer_read - yy_buffer_start);");
+	m_outstream.println("\t\t\tyy_buffer_end = yy_buffer_end - yy_buffer_start;");
+	m_outstream.println("\t\t\tyy_buffer_read = yy_buffer_read - yy_buffer_start;");
+	m_outstream.println("\t\t\tyy_buffer_index = yy_buffer_index - yy_buffer_start;");
+	m_outstream.println("\t\t\tyy_buffer_start = 0;");
+	m_outstream.println("\t\t}");
+	m_outstream.println();
+	m_outstream.println("\t\twhile (yy_buffer_index >= yy_buffer_read) {");
+	m_outstream.println("\t\t\tif (2 * yy_buffer_read > yy_buffer.length");
+	m_outstream.println("\t\t\t    || (yy_read_filled && yy_buffer.length < YY_BUFFER_MAX)) {");
+	m_outstream.println("\t\t\t\tyy_buffer = java.util.Arrays.copyOf(yy_buffer,");
+	m_outstream.println("\t\t\t\t\t\t2 * yy_buffer.length);");
+	m_outstream.println("\t\t\t}");
+	m_outstream.println("\t\t\troom = yy_buffer.length - yy_buffer_read;");
+	m_outstream.println("\t\t\tnext_read = yy_reader.read(yy_buffer,");
+	m_outstream.println("\t\t\t\t\tyy_buffer_read, room);");
+	m_outstream.println("\t\t\tif (-1 == next_read) {");
+	m_outstream.println("\t\t\t\treturn YY_EOF;");
+	m_outstream.println("\t\t\t}");
+	m_outstream.println("\t\t\tyy_read_filled = (next_read == room);");
+	m_outstream.println("\t\t\tyy_buffer_read = yy_buffer_read + next_read;");
+	m_outstream.println("\t\t}");
+	m_outstream.println("\t\treturn yy_buffer[yy_buffer_index++];");
+	m_outstream.println("\t}");
+      }
+
+  /***************************************************************
+    Function: emit_comb
+    Description: Emits the transitions of a lexer with a
+    compressed (row displacement) transition table.  Each row
+    gets a default next state, the one most of its characters
+    go to, and only the entries that differ from it are kept.
+    The rows are laid over one another in a single yy_nxt array,
+    each starting at its own yy_base offset, placed so that
+    their kept entries never land on the same slot; yy_check
+    says which row each slot belongs to, and a character whose
+    slot belongs to another row goes to the row's yy_def state.
+    Every table is emitted as a byte or short array when its
+    values fit.
+    **************************************************************/
+  private void emit_comb
+    (
+     int[] yy_cmap
+     )
+      throws java.io.IOException
+      {
+	int i;
+	int c;
+	int row;
+	int nrows;
+	int ncols;
+	int size;
+	CDTrans dtrans;
+
+	nrows = m_spec.m_dtrans_vector.size();
+	ncols = m_spec.m_dtrans_ncols;
+
+	/* Pick the default of each row: its most frequent entry,
+	   the one that comes first on a tie. */
+	int[] yy_def = new int[nrows];
+	int[] kept = new int[nrows];
+	for (row = 0; row < nrows; ++row)
+	  {
+	    dtrans = (CDTrans) m_spec.m_dtrans_vector.elementAt(row);
+	    int best = 0;
+	    for (c = 0; c < ncols; ++c)
+	      {
+		int count = 0;
+		for (i = 0; i < ncols; ++i)
+		  {
+		    if (dtrans.m_dtrans[i] == dtrans.m_dtrans[c])
+		      {
+			++count;
+		      }
+		  }
+		if (count > best)
+		  {
+		    best = count;
+		    yy_def[row] = dtrans.m_dtrans[c];
+		  }
+	      }
+	    kept[row] = ncols - best;
+	  }
+
+	/* Place the rows with the most entries first, each at the
+	   lowest offset where its entries fit. */
+	Integer[] order = new Integer[nrows];
+	for (row = 0; row < nrows; ++row)
+	  {
+	    order[row] = row;
+	  }
+	final int[] weight = kept;
+	java.util.Arrays.sort(order, (a, b) -> weight[b] != weight[a]
+			      ? weight[b] - weight[a] : a - b);
+
+	int[] yy_base = new int[nrows];
+	int[] yy_nxt = new int[2 * ncols];
+	int[] yy_check = new int[2 * ncols];
+	java.util.Arrays.fill(yy_check, -1);
+	int first_free = 0;
+	size = 0;
+	for (int k = 0; k < nrows; ++k)
+	  {
+	    row = order[k];
+	    dtrans = (CDTrans) m_spec.m_dtrans_vector.elementAt(row);
+
+	    int base;
+	    for (base = first_free; ; ++base)
+	      {
+		if (base + ncols > yy_check.length)
+		  {
+		    int n = Math.max(2 * yy_check.length, base + ncols);
+		    yy_nxt = java.util.Arrays.copyOf(yy_nxt, n);
+		    int old = yy_check.length;
+		    yy_check = java.util.Arrays.copyOf(yy_check, n);
+		    java.util.Arrays.fill(yy_check, old, n, -1);
+		  }
+		for (c = 0; c < ncols; ++c)
+		  {
+		    if (dtrans.m_dtrans[c] != yy_def[row]
+			&& -1 != yy_check[base + c])
+		      {
+			break;
+		      }
+		  }
+		if (c == ncols)
+		  {
+		    break;
+		  }
+	      }
+
+	    yy_base[row] = base;
+	    for (c = 0; c < ncols; ++c)
+	      {
+		if (dtrans.m_dtrans[c] != yy_def[row])
+		  {
+		    yy_nxt[base + c] = dtrans.m_dtrans[c];
+		    yy_check[base + c] = row;
+		  }
+	      }
+	    size = Math.max(size, base + ncols);
+	    while (first_free < size && -1 != yy_check[first_free])
+	      {
+		++first_free;
+	      }
+	  }
+
+	/* Every row can read ncols slots from its base. */
+	yy_nxt = java.util.Arrays.copyOf(yy_nxt, size);
+	yy_check = java.util.Arrays.copyOf(yy_check, size);
+	for (i = 0; i < size; ++i)
+	  {
+	    if (-1 == yy_check[i])
+	      {
+		yy_nxt[i] = CDTrans.F;
+	      }
+	  }
+
+	emit_packed("yy_cmap", yy_cmap);
+	emit_packed("yy_rmap", m_spec.m_row_map);
+	emit_packed("yy_base", yy_base);
+	emit_packed("yy_def", yy_def);
+	emit_packed("yy_nxt", yy_nxt);
+	emit_packed("yy_check", yy_check);
+
+	if (m_comb_bytes_used)
+	  {
+	    m_outstream.println("\tprivate static byte[] yy_bytes (int[] a) {");
+	    m_outstream.println("\t\tbyte[] b = new byte[a.length];");
+	    m_outstream.println("\t\tfor (int i = 0; i < a.length; ++i) b[i] = (byte) a[i];");
+	    m_outstream.println("\t\treturn b;");
+	    m_outstream.println("\t}");
+	    m_outstream.println();
+	  }
+	if (m_comb_shorts_used)
+	  {
+	    m_outstream.println("\tprivate static short[] yy_shorts (int[] a) {");
+	    m_outstream.println("\t\tshort[] s = new short[a.length];");
+	    m_outstream.println("\t\tfor (int i = 0; i < a.length; ++i) s[i] = (short) a[i];");
+	    m_outstream.println("\t\treturn s;");
+	    m_outstream.println("\t}");
+	    m_outstream.println();
+	  }
+
+	m_outstream.println("\tprivate static int yy_next (int state, int c) {");
+	m_outstream.println("\t\tint row = yy_rmap[state];");
+	m_outstream.println("\t\tint i = yy_base[row] + yy_cmap[c];");
+	m_outstream.println("\t\treturn yy_check[i] == row ? yy_nxt[i] : yy_def[row];");
+	m_outstream.println("\t}");
+	m_outstream.println();
+
+	System.out.println("Transition table compressed to "
+			   + m_comb_bytes + " bytes ("
+			   + (4 * (yy_cmap.length + m_spec.m_row_map.length
+				   + nrows * ncols))
+			   + " bytes uncompressed).");
+      }
+
+  /***************************************************************
+    Function: emit_packed
+    Description: Emits a static table of a compressed lexer, as a
+    byte array if its values fit in a byte, a short array if they
+    fit in a short, and an int array otherwise.
+    **************************************************************/
+  private void emit_packed
+    (
+     String name,
+     int[] table
+     )
+      throws java.io.IOException
+      {
+	int i;
+	int min = 0;
+	int max = 0;
+
+	for (i = 0; i < table.length; ++i)
+	  {
+	    min = Math.min(min, table[i]);
+	    max = Math.max(max, table[i]);
+	  }
+
+	String type;
+	String unpack;
+	if (min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE)
+	  {
+	    type = "byte";
+	    unpack = "yy_bytes";
+	    m_comb_bytes_used = true;
+	    m_comb_bytes += table.length;
+	  }
+	else if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE)
+	  {
+	    type = "short";
+	    unpack = "yy_shorts";
+	    m_comb_shorts_used = true;
+	    m_comb_bytes += 2 * table.length;
+	  }
+	else
+	  {
+	    type = "int";
+	    unpack = "";
+	    m_comb_bytes += 4 * table.length;
+	  }
+
+	m_outstream.print("\tprivate static final " + type + " " + name
+			  + "[] = " + unpack + "(unpackFromString(");
+	emit_table_as_string(new int[][] { table });
+	m_outstream.println(")[0]);");
+	m_outstream.println();
+      }
+
+  /***************************************************************
+    Function: emit_switch
+    Description: Emits the transitions of a direct-coded lexer.
+    yy_next switches on the state, and calls the method for the
+    state's row of the transition table; the method for a row
+    switches on the input character and returns the next state,
+    or YY_F.  States that share a row share its method, and the
+    rows are kept in methods of their own so that each stays small
+    enough for the JIT to compile and inline.
+    **************************************************************/
+  private void emit_switch
+    (
+     int[] yy_cmap
+     )
+      throws java.io.IOException
+      {
+	int i;
+	int row;
+	int nrows;
+	CDTrans dtrans;
+
+	nrows = m_spec.m_dtrans_vector.size();
+
+	m_outstream.println("\tprivate static int yy_next (int state, int c) {");
+	m_outstream.println("\t\tswitch (state) {");
+	for (row = 0; row < nrows; ++row)
+	  {
+	    boolean used = false;
+	    for (i = 0; i < m_spec.m_row_map.length; ++i)
+	      {
+		if (m_spec.m_row_map[i] == row)
+		  {
+		    m_outstream.println("\t\tcase " + i + ":");
+		    used = true;
+		  }
+	      }
+	    if (used)
+	      {
+		m_outstream.println("\t\t\treturn yy_row" + row + "(c);");
+	      }
+	  }
+	m_outstream.println("\t\tdefault:");
+	m_outstream.println("\t\t\treturn YY_F;");
+	m_outstream.println("\t\t}");
+	m_outstream.println("\t}");
+	m_outstream.println();
+
+	for (row = 0; row < nrows; ++row)
+	  {
+	    dtrans = (CDTrans) m_spec.m_dtrans_vector.elementAt(row);
+
+	    m_outstream.println("\tprivate static int yy_row" + row + " (int c) {");
+	    m_outstream.println("\t\tswitch (c) {");
+
+	    /* One group of case labels for each next state, in order of
+	       the first character that leads to it. */
+	    boolean[] done = new boolean[yy_cmap.length];
+	    for (i = 0; i < yy_cmap.length; ++i)
+	      {
+		int next = dtrans.m_dtrans[yy_cmap[i]];
+		if (done[i] || CDTrans.F == next)
+		  {
+		    continue;
+		  }
+		int labels = 0;
+		for (int j = i; j < yy_cmap.length; ++j)
+		  {
+		    if (!done[j] && dtrans.m_dtrans[yy_cmap[j]] == next)
+		      {
+			/* Eight labels to a line. */
+			m_outstream.print((0 == labels % 8 ? "\t\t" : " ")
+					  + "case " + j + ":");
+			if (7 == labels % 8)
+			  {
+			    m_outstream.println();
+			  }
+			++labels;
+			done[j] = true;
+		      }
+		  }
+		if (0 != labels % 8)
+		  {
+		    m_outstream.println();
+		  }
+		m_outstream.println("\t\t\treturn " + next + ";");
+	      }
+
+	    m_outstream.println("\t\tdefault:");
+	    m_outstream.println("\t\t\treturn YY_F;");
+	    m_outstream.println("\t\t}");
+	    m_outstream.println("\t}");
+	    m_outstream.println();
+	  }
+      }
+
   /***************************************************************
     Function: emit_driver
     Description: Output an integer table as a string.  Written by
@@ -1417,8 +1905,16 @@ class CEmit
 	  m_outstream.println("\t\t\tyy_next_state = YY_F;");
 	  /*m_outstream.println("\t\t\t\tyy_next_state = "
 				 + "yy_next(yy_state,yy_lookahead);");*/
-	  m_outstream.println("\t\t\tyy_next_state = "
- 	   + "yy_nxt[yy_rmap[yy_state]][yy_cmap[yy_lookahead]];");
+	  if (m_spec.m_switch_coded || m_spec.m_comb)
+	    {
+	      m_outstream.println("\t\t\tyy_next_state = "
+				     + "yy_next(yy_state,yy_lookahead);");
+	    }
+	  else
+	    {
+	      m_outstream.println("\t\t\tyy_next_state = "
+				     + "yy_nxt[yy_rmap[yy_state]][yy_cmap[yy_lookahead]];");
+	    }
 
 	  if (NOT_EDBG)
 	    {
@@ -1616,7 +2112,7 @@ class CBunch
     Member Variables
     **************************************************************/
   Vector m_nfa_set; /* Vector of CNfa states in dfa state. */
-  SparseBitSet m_nfa_bit; /* BitSet representation of CNfa labels. */
+  CStateSet m_nfa_bit; /* BitSet representation of CNfa labels. */
   CAccept m_accept; /* Accepting actions, or null if nonaccepting state. */
   int m_anchor; /* Anchors on regular expression. */
   int m_accept_index; /* CNfa index corresponding to accepting actions. */
@@ -2659,14 +3155,16 @@ class CMinimize
 	    
 	    m_spec.m_col_map[i] = reduced_ncols;
 	    
-	    /* UNDONE: Optimize by doing all comparisons in one batch. */
-	    for (j = i + 1; j < m_spec.m_dtrans_ncols; ++j)
-	      {
-		if (-1 == m_spec.m_col_map[j] && true == col_equiv(i,j))
+	    /* The comparisons only read the table, so they can all
+	       run at once. */
+	    final int col = i;
+	    final int reduced_col = reduced_ncols;
+	    CUtility.parallel_for(i + 1, m_spec.m_dtrans_ncols, jj -> {
+		if (-1 == m_spec.m_col_map[jj] && true == col_equiv(col,jj))
 		  {
-		    m_spec.m_col_map[j] = reduced_ncols;
+		    m_spec.m_col_map[jj] = reduced_col;
 		  }
-	      }
+	      });
 	  }
 
 	/* Reduce columns. */
@@ -2745,14 +3243,16 @@ class CMinimize
 
 	    m_spec.m_row_map[i] = reduced_nrows;
 	    
-	    /* UNDONE: Optimize by doing all comparisons in one batch. */
-	    for (j = i + 1; j < nrows; ++j)
-	      {
-		if (-1 == m_spec.m_row_map[j] && true == row_equiv(i,j))
+	    /* The comparisons only read the table, so they can all
+	       run at once. */
+	    final int row = i;
+	    final int reduced_row = reduced_nrows;
+	    CUtility.parallel_for(i + 1, nrows, jj -> {
+		if (-1 == m_spec.m_row_map[jj] && true == row_equiv(row,jj))
 		  {
-		    m_spec.m_row_map[j] = reduced_nrows;
+		    m_spec.m_row_map[jj] = reduced_row;
 		  }
-	      }
+	      });
 	  }
 
 	/* Reduce rows. */
@@ -2919,12 +3419,9 @@ class CMinimize
 
 			    if (CUtility.DEBUG)
 			      {
-				CUtility.ASSERT(m_group.contains(new_group)
-						== true);
-				CUtility.ASSERT(m_group.contains(dtrans_group)
-						== true);
-				CUtility.ASSERT(dtrans_group.contains(first)
-						== true);
+				CUtility.ASSERT(m_group.lastElement() == new_group);
+				CUtility.ASSERT(m_group.elementAt(i) == dtrans_group);
+				CUtility.ASSERT(dtrans_group.elementAt(0) == first);
 				CUtility.ASSERT(dtrans_group.contains(next)
 						== false);
 				CUtility.ASSERT(new_group.contains(first)
@@ -3117,6 +3614,7 @@ class CNfa2Dfa
   private CSpec m_spec;
   private int m_unmarked_dfa;
   private CLexGen m_lexGen;
+  private CNfa m_nfa_by_label[]; /* NFA states, indexed by label. */
 
   /***************************************************************
     Constants
@@ -3146,6 +3644,9 @@ class CNfa2Dfa
 	m_lexGen = lexGen;
 	m_spec = spec;
 	m_unmarked_dfa = 0;
+
+	m_nfa_by_label = new CNfa[spec.m_nfa_states.size()];
+	spec.m_nfa_states.copyInto(m_nfa_by_label);
       }
 
   /***************************************************************
@@ -3159,6 +3660,7 @@ class CNfa2Dfa
 	m_lexGen = null;
 	m_spec = null;
 	m_unmarked_dfa = 0;
+	m_nfa_by_label = null;
       }
 
   /***************************************************************
@@ -3235,7 +3737,7 @@ class CNfa2Dfa
 	    bunch.m_nfa_set = (Vector) m_spec.m_state_rules[istate].clone();
 	    sortStates(bunch.m_nfa_set);
 	    
-	    bunch.m_nfa_bit = new SparseBitSet();
+	    bunch.m_nfa_bit = CStateSet.make(m_nfa_by_label.length);
 	    
 	    /* Initialize bit set. */
 	    size = bunch.m_nfa_set.size();
@@ -3254,78 +3756,74 @@ class CNfa2Dfa
 	    
 	    m_spec.m_state_dtrans[istate] = m_spec.m_dtrans_vector.size();
 
-	    /* Main loop of CDTrans creation. */
-	    while (null != (dfa = get_unmarked()))
+	    /* Main loop of CDTrans creation.  Each time round, the
+	       successors of all the unmarked states are worked out
+	       in parallel, then registered in the order the states
+	       and characters come in, which numbers the new states
+	       the same way as handling one state at a time does. */
+	    while (m_unmarked_dfa < m_spec.m_dfa_states.size())
 	      {
-		System.out.print(".");
-		System.out.flush();
-		
-		if (CUtility.DEBUG)
+		int first = m_unmarked_dfa;
+		int last = m_spec.m_dfa_states.size();
+		CBunch[] next_sets = successors(first, last);
+
+		for (int d = first; d < last; ++d)
 		  {
-		    CUtility.ASSERT(false == dfa.m_mark);
-		  }
+		    System.out.print(".");
+		    System.out.flush();
 
-		/* Get first unmarked node, then mark it. */
-		dfa.m_mark = true;
+		    dfa = (CDfa) m_spec.m_dfa_states.elementAt(d);
 		
-		/* Allocate new CDTrans, then initialize fields. */
-		dtrans = new CDTrans(m_spec.m_dtrans_vector.size(),m_spec);
-		dtrans.m_accept = dfa.m_accept;
-		dtrans.m_anchor = dfa.m_anchor;
-		
-		/* Set CDTrans array for each character transition. */
-		for (i = 0; i < m_spec.m_dtrans_ncols; ++i)
-		  {
 		    if (CUtility.DEBUG)
 		      {
-			CUtility.ASSERT(0 <= i);
-			CUtility.ASSERT(m_spec.m_dtrans_ncols > i);
-		      }
-		    
-		    /* Create new dfa set by attempting character transition. */
-		    move(dfa.m_nfa_set,dfa.m_nfa_bit,i,bunch);
-		    if (null != bunch.m_nfa_set)
-		      {
-			e_closure(bunch);
+			CUtility.ASSERT(false == dfa.m_mark);
 		      }
-		    
-		    if (CUtility.DEBUG)
+
+		    /* Mark the node. */
+		    dfa.m_mark = true;
+		
+		    /* Allocate new CDTrans, then initialize fields. */
+		    dtrans = new CDTrans(m_spec.m_dtrans_vector.size(),m_spec);
+		    dtrans.m_accept = dfa.m_accept;
+		    dtrans.m_anchor = dfa.m_anchor;
+		
+		    /* Set CDTrans array for each character transition. */
+		    for (i = 0; i < m_spec.m_dtrans_ncols; ++i)
 		      {
-			CUtility.ASSERT((null == bunch.m_nfa_set 
-					 && null == bunch.m_nfa_bit)
-					|| (null != bunch.m_nfa_set 
-					    && null != bunch.m_nfa_bit));
-		      }
+			bunch = next_sets[(d - first) * m_spec.m_dtrans_ncols + i];
 		    
-		    /* Create new state or set state to empty. */
-		    if (null == bunch.m_nfa_set)
-		      {
-			nextstate = CDTrans.F;
-		      }
-		    else 
-		      {
-			nextstate = in_dstates(bunch);
+			/* Create new state or set state to empty. */
+			if (null == bunch)
+			  {
+			    nextstate = CDTrans.F;
+			  }
+			else 
+			  {
+			    nextstate = in_dstates(bunch);
 			
-			if (NOT_IN_DSTATES == nextstate)
+			    if (NOT_IN_DSTATES == nextstate)
+			      {
+				nextstate = add_to_dstates(bunch);
+			      }
+			  }
+		    
+			if (CUtility.DEBUG)
 			  {
-			    nextstate = add_to_dstates(bunch);
+			    CUtility.ASSERT(nextstate < m_spec.m_dfa_states.size());
 			  }
-		      }
 		    
+			dtrans.m_dtrans[i] = nextstate;
+		      }
+		
 		    if (CUtility.DEBUG)
 		      {
-			CUtility.ASSERT(nextstate < m_spec.m_dfa_states.size());
+			CUtility.ASSERT(m_spec.m_dtrans_vector.size() == dfa.m_label);
 		      }
-		    
-		    dtrans.m_dtrans[i] = nextstate;
-		  }
 		
-		if (CUtility.DEBUG)
-		  {
-		    CUtility.ASSERT(m_spec.m_dtrans_vector.size() == dfa.m_label);
+		    m_spec.m_dtrans_vector.addElement(dtrans);
 		  }
-		
-		m_spec.m_dtrans_vector.addElement(dtrans);
+
+		m_unmarked_dfa = last;
 	      }
 	  }
 
@@ -3445,13 +3943,8 @@ class CNfa2Dfa
 	      {
 		if (null != state.m_next)
 		  {
-		    if (false == bunch.m_nfa_set.contains(state.m_next))
+		    if (false == bunch.m_nfa_bit.get(state.m_next.m_label))
 		      {
-			if (CUtility.DEBUG)
-			  {
-			    CUtility.ASSERT(false == bunch.m_nfa_bit.get(state.m_next.m_label));
-			  }
-			
 			bunch.m_nfa_bit.set(state.m_next.m_label);
 			bunch.m_nfa_set.addElement(state.m_next);
 			nfa_stack.push(state.m_next);
@@ -3460,13 +3953,8 @@ class CNfa2Dfa
 
 		if (null != state.m_next2)
 		  {
-		    if (false == bunch.m_nfa_set.contains(state.m_next2))
+		    if (false == bunch.m_nfa_bit.get(state.m_next2.m_label))
 		      {
-			if (CUtility.DEBUG)
-			  {
-			    CUtility.ASSERT(false == bunch.m_nfa_bit.get(state.m_next2.m_label));
-			  }
-			
 			bunch.m_nfa_bit.set(state.m_next2.m_label);
 			bunch.m_nfa_set.addElement(state.m_next2);
 			nfa_stack.push(state.m_next2);
@@ -3477,7 +3965,7 @@ class CNfa2Dfa
 
 	if (null != bunch.m_nfa_set)
 	  {
-	    sortStates(bunch.m_nfa_set);
+	    sort_by_label(bunch);
 	  }
 
 	return;
@@ -3490,7 +3978,7 @@ class CNfa2Dfa
   void move
     (
      Vector nfa_set,
-     SparseBitSet nfa_bit,
+     CStateSet nfa_bit,
      int b,
      CBunch bunch
      )
@@ -3519,9 +4007,7 @@ class CNfa2Dfa
 		      }
 		    
 		    bunch.m_nfa_set = new Vector();
-		    /*bunch.m_nfa_bit 
-			= new SparseBitSet(m_spec.m_nfa_states.size());*/
-		    bunch.m_nfa_bit = new SparseBitSet();
+		    bunch.m_nfa_bit = CStateSet.make(m_nfa_by_label.length);
 		  }
 
 		bunch.m_nfa_set.addElement(state.m_next);
@@ -3539,12 +4025,44 @@ class CNfa2Dfa
 		CUtility.ASSERT(null != bunch.m_nfa_bit);
 	      }
 	    
-	    sortStates(bunch.m_nfa_set);
+	    sort_by_label(bunch);
 	  }
 
 	return;
       }
 
+  /***************************************************************
+    Function: sort_by_label
+    Description: Puts the states of the bunch in order of their
+    labels, by reading them off its bit set, which holds the
+    same states.
+    **************************************************************/
+  private void sort_by_label
+    (
+     CBunch bunch
+     )
+      {
+	int label;
+
+	if (CUtility.DEBUG)
+	  {
+	    CUtility.ASSERT(null != bunch.m_nfa_bit);
+	  }
+
+	bunch.m_nfa_set.removeAllElements();
+	for (label = bunch.m_nfa_bit.next(0); 
+	     label >= 0; 
+	     label = bunch.m_nfa_bit.next(label + 1))
+	  {
+	    if (CUtility.DEBUG)
+	      {
+		CUtility.ASSERT(label == m_nfa_by_label[label].m_label);
+	      }
+
+	    bunch.m_nfa_set.addElement(m_nfa_by_label[label]);
+	  }
+      }
+
   /***************************************************************
     Function: sortStates
     **************************************************************/
@@ -3603,46 +4121,57 @@ class CNfa2Dfa
       }
 
   /***************************************************************
-    Function: get_unmarked
-    Description: Returns next unmarked DFA state.
+    Function: successors
+    Description: Works out, in parallel, the NFA state set that
+    each of the DFA states [first, last) goes to on each character.
+    The set for state d and character i is at
+    (d - first) * m_dtrans_ncols + i, or null if there is none.
+    Only reads the NFA and the DFA states, so the work for each
+    state and character is independent.
     **************************************************************/
-  private CDfa get_unmarked
+  private CBunch[] successors
     (
+     int first,
+     int last
      )
       {
-	int size;
-	CDfa dfa;
+	final int ncols = m_spec.m_dtrans_ncols;
+	final CBunch[] next_sets = new CBunch[(last - first) * ncols];
+	final CDfa[] dfas = new CDfa[last - first];
 
-	size = m_spec.m_dfa_states.size();
-	while (m_unmarked_dfa < size)
+	for (int d = first; d < last; ++d)
 	  {
-	    dfa = (CDfa) m_spec.m_dfa_states.elementAt(m_unmarked_dfa);
-
-	    if (false == dfa.m_mark)
-	      {
-		if (CUtility.OLD_DUMP_DEBUG)
-		  {
-		    System.out.print("*");
-		    System.out.flush();
-		  }
+	    dfas[d - first] = (CDfa) m_spec.m_dfa_states.elementAt(d);
+	  }
 
-		if (m_spec.m_verbose && true == CUtility.OLD_DUMP_DEBUG)
-		  {
-		    System.out.println("---------------");
-		    System.out.print("working on DFA state " 
-				     + m_unmarked_dfa
-				     + " = NFA states: ");
-		    m_lexGen.print_set(dfa.m_nfa_set);
-		    System.out.println();
-		  }
+	CUtility.parallel_for(0, next_sets.length, k -> {
+	    CDfa dfa = dfas[k / ncols];
+	    CBunch bunch = new CBunch();
 
-		return dfa;
+	    /* Create new dfa set by attempting character transition. */
+	    move(dfa.m_nfa_set,dfa.m_nfa_bit,k % ncols,bunch);
+	    if (null != bunch.m_nfa_set)
+	      {
+		e_closure(bunch);
+	      }
+		    
+	    if (CUtility.DEBUG)
+	      {
+		CUtility.ASSERT((null == bunch.m_nfa_set 
+				 && null == bunch.m_nfa_bit)
+				|| (null != bunch.m_nfa_set 
+				    && null != bunch.m_nfa_bit));
 	      }
 
-	    ++m_unmarked_dfa;
-	  }
+	    if (null != bunch.m_nfa_set)
+	      {
+		/* Hash now, while in parallel, for in_dstates. */
+		bunch.m_nfa_bit.hashCode();
+		next_sets[k] = bunch;
+	      }
+	  });
 
-	return null;
+	return next_sets;
       }
   
   /***************************************************************
@@ -3675,12 +4204,12 @@ class CNfa2Dfa
 	
 	/* Initialize fields, including the mark field. */
 	dfa.m_nfa_set = (Vector) bunch.m_nfa_set.clone();
-	dfa.m_nfa_bit = (SparseBitSet) bunch.m_nfa_bit.clone();
+	dfa.m_nfa_bit = (CStateSet) bunch.m_nfa_bit.clone();
 	dfa.m_accept = bunch.m_accept;
 	dfa.m_anchor = bunch.m_anchor;
 	dfa.m_mark = false;
 	
-	/* Register dfa state using BitSet in CSpec Hashtable. */
+	/* Register dfa state using its set of NFA states. */
 	m_spec.m_dfa_sets.put(dfa.m_nfa_bit,dfa);
 	/*registerCDfa(dfa);*/
 
@@ -3710,7 +4239,7 @@ class CNfa2Dfa
 	    m_lexGen.print_set(bunch.m_nfa_set);
 	  }
 
-	dfa = (CDfa) m_spec.m_dfa_sets.get(bunch.m_nfa_bit);
+	dfa = m_spec.m_dfa_sets.get(bunch.m_nfa_bit);
 
 	if (null != dfa)
 	  {
@@ -3901,7 +4430,7 @@ class CDfa
   CAccept m_accept;
   int m_anchor;
   Vector m_nfa_set;
-  SparseBitSet m_nfa_bit;
+  CStateSet m_nfa_bit;
   int m_label;
 
   /***************************************************************
@@ -4206,6 +4735,37 @@ class CUtility
   static final int MAX_EIGHT_BIT = 255;
   static final int MAX_SIXTEEN_BIT=65535;
 
+  /********************************************************
+    Constants: Parallel Loops
+    Loops with fewer iterations than this are not worth
+    splitting across threads.
+    *******************************************************/
+  static final int PARALLEL_GRAIN = 256;
+
+  /********************************************************
+    Function: parallel_for
+    Description: Runs body for every index in [from, to),
+    on the common ForkJoinPool if the range is large
+    enough.  The bodies must not depend on each other.
+    *******************************************************/
+  static void parallel_for
+    (
+     int from,
+     int to,
+     IntConsumer body
+     )
+      {
+	if (to - from < PARALLEL_GRAIN)
+	  {
+	    for (int i = from; i < to; ++i)
+	      {
+		body.accept(i);
+	      }
+	    return;
+	  }
+	IntStream.range(from, to).parallel().forEach(body);
+      }
+
   /********************************************************
     Function: enter
     Description: Debugging routine.
@@ -4684,6 +5244,434 @@ class CSet
   }
 }
 
+/********************************************************
+  Class: CStateSet
+  Description: A set of NFA states, kept as bits indexed
+  by state label.  CBunch and CDfa use these to name the
+  NFA states a DFA state stands for.  A spec whose NFA has
+  at most DENSE_LIMIT states gets a CDenseStateSet, a
+  long[] with a bit for every state; a bigger one gets a
+  CSparseStateSet, which only spends memory on the parts
+  of the set in use.  The hash code is worked out once and
+  kept until the set changes.
+  *******************************************************/
+abstract class CStateSet implements Cloneable
+{
+  /********************************************************
+    Constants
+    *******************************************************/
+  static final int DENSE_LIMIT = 8192; /* 1K bytes per set. */
+
+  /********************************************************
+    Member Variables
+    *******************************************************/
+  private int m_hash;
+  private boolean m_hashed = false;
+
+  /********************************************************
+    Function: make
+    Description: Returns an empty set for an NFA with the
+    given number of states.
+    *******************************************************/
+  static CStateSet make
+    (
+     int nstates
+     )
+      {
+	if (nstates <= DENSE_LIMIT)
+	  {
+	    return new CDenseStateSet(nstates);
+	  }
+	return new CSparseStateSet();
+      }
+
+  abstract boolean get(int label);
+
+  /********************************************************
+    Function: next
+    Description: Returns the smallest label in the set that
+    is at least from, or -1 if there is none.
+    *******************************************************/
+  abstract int next(int from);
+
+  abstract void set(int label);
+
+  /********************************************************
+    Function: or, and
+    Description: Union and intersection, in place.  The
+    other set must be of the same kind.
+    *******************************************************/
+  abstract void or(CStateSet set);
+  abstract void and(CStateSet set);
+
+  abstract int hash();
+  abstract boolean same(CStateSet set);
+
+  /********************************************************
+    Function: changed
+    Description: Forgets the hash code.  Called by every
+    operation that alters the set.
+    *******************************************************/
+  final void changed
+    (
+     )
+      {
+	m_hashed = false;
+      }
+
+  public final int hashCode
+    (
+     )
+      {
+	if (false == m_hashed)
+	  {
+	    m_hash = hash();
+	    m_hashed = true;
+	  }
+	return m_hash;
+      }
+
+  public final boolean equals
+    (
+     Object obj
+     )
+      {
+	if (this == obj)
+	  {
+	    return true;
+	  }
+	if (false == (obj instanceof CStateSet))
+	  {
+	    return false;
+	  }
+	CStateSet set = (CStateSet) obj;
+	return hashCode() == set.hashCode() && same(set);
+      }
+
+  public Object clone
+    (
+     )
+      {
+	try
+	  {
+	    return super.clone();
+	  }
+	catch (CloneNotSupportedException e)
+	  {
+	    throw new InternalError();
+	  }
+      }
+}
+
+/********************************************************
+  Class: CDenseStateSet
+  *******************************************************/
+final class CDenseStateSet extends CStateSet
+{
+  private long m_words[];
+
+  CDenseStateSet
+    (
+     int nstates
+     )
+      {
+	m_words = new long[(nstates + 63) >> 6];
+      }
+
+  boolean get
+    (
+     int label
+     )
+      {
+	return 0 != (m_words[label >> 6] & (1L << label));
+      }
+
+  int next
+    (
+     int from
+     )
+      {
+	int i = from >> 6;
+	if (i >= m_words.length)
+	  {
+	    return -1;
+	  }
+	long word = m_words[i] & (-1L << from);
+	while (0 == word)
+	  {
+	    if (++i == m_words.length)
+	      {
+		return -1;
+	      }
+	    word = m_words[i];
+	  }
+	return (i << 6) + Long.numberOfTrailingZeros(word);
+      }
+
+  void set
+    (
+     int label
+     )
+      {
+	m_words[label >> 6] |= 1L << label;
+	changed();
+      }
+
+  void or
+    (
+     CStateSet set
+     )
+      {
+	long words[] = ((CDenseStateSet) set).m_words;
+	for (int i = 0; i < m_words.length; ++i)
+	  {
+	    m_words[i] |= words[i];
+	  }
+	changed();
+      }
+
+  void and
+    (
+     CStateSet set
+     )
+      {
+	long words[] = ((CDenseStateSet) set).m_words;
+	for (int i = 0; i < m_words.length; ++i)
+	  {
+	    m_words[i] &= words[i];
+	  }
+	changed();
+      }
+
+  int hash
+    (
+     )
+      {
+	long h = 1234;
+	for (int i = 0; i < m_words.length; ++i)
+	  {
+	    h = 31 * h + m_words[i];
+	  }
+	return (int) ((h >> 32) ^ h);
+      }
+
+  boolean same
+    (
+     CStateSet set
+     )
+      {
+	long words[] = ((CDenseStateSet) set).m_words;
+	for (int i = 0; i < m_words.length; ++i)
+	  {
+	    if (m_words[i] != words[i])
+	      {
+		return false;
+	      }
+	  }
+	return true;
+      }
+
+  public Object clone
+    (
+     )
+      {
+	CDenseStateSet set = (CDenseStateSet) super.clone();
+	set.m_words = (long[]) m_words.clone();
+	return set;
+      }
+}
+
+/********************************************************
+  Class: CSparseStateSet
+  *******************************************************/
+final class CSparseStateSet extends CStateSet
+{
+  private SparseBitSet m_bits = new SparseBitSet();
+
+  boolean get
+    (
+     int label
+     )
+      {
+	return m_bits.get(label);
+      }
+
+  int next
+    (
+     int from
+     )
+      {
+	return m_bits.nextSetBit(from);
+      }
+
+  void set
+    (
+     int label
+     )
+      {
+	m_bits.set(label);
+	changed();
+      }
+
+  void or
+    (
+     CStateSet set
+     )
+      {
+	m_bits.or(((CSparseStateSet) set).m_bits);
+	changed();
+      }
+
+  void and
+    (
+     CStateSet set
+     )
+      {
+	m_bits.and(((CSparseStateSet) set).m_bits);
+	changed();
+      }
+
+  int hash
+    (
+     )
+      {
+	return m_bits.hashCode();
+      }
+
+  boolean same
+    (
+     CStateSet set
+     )
+      {
+	return SparseBitSet.equals(m_bits, ((CSparseStateSet) set).m_bits);
+      }
+
+  public Object clone
+    (
+     )
+      {
+	CSparseStateSet set = (CSparseStateSet) super.clone();
+	set.m_bits = (SparseBitSet) m_bits.clone();
+	return set;
+      }
+}
+
+/********************************************************
+  Class: CStateSetCache
+  Description: Takes each distinct set of NFA states to
+  the DFA state made for it.  An open addressing table
+  that keeps the hash code of every set next to it, so a
+  lookup only compares the bits of sets whose hash codes
+  match, and each set is hashed only once.
+  *******************************************************/
+class CStateSetCache
+{
+  private CStateSet m_keys[] = new CStateSet[64];
+  private CDfa m_values[] = new CDfa[64];
+  private int m_hashes[] = new int[64];
+  private int m_size = 0;
+
+  /********************************************************
+    Function: get
+    Description: Returns the DFA state for the set, or
+    null if there is none yet.
+    *******************************************************/
+  CDfa get
+    (
+     CStateSet set
+     )
+      {
+	int h = set.hashCode();
+	int mask = m_keys.length - 1;
+	for (int i = slot(h, mask); null != m_keys[i]; i = (i + 1) & mask)
+	  {
+	    if (m_hashes[i] == h && m_keys[i].same(set))
+	      {
+		return m_values[i];
+	      }
+	  }
+	return null;
+      }
+
+  /********************************************************
+    Function: put
+    Description: Registers the DFA state for a set that is
+    not in the cache yet.  The set must not change after.
+    *******************************************************/
+  void put
+    (
+     CStateSet set,
+     CDfa dfa
+     )
+      {
+	if (CUtility.DEBUG)
+	  {
+	    CUtility.ASSERT(null == get(set));
+	  }
+
+	if (2 * (m_size + 1) > m_keys.length)
+	  {
+	    grow();
+	  }
+	insert(set, set.hashCode(), dfa);
+	++m_size;
+      }
+
+  int size
+    (
+     )
+      {
+	return m_size;
+      }
+
+  private void grow
+    (
+     )
+      {
+	CStateSet keys[] = m_keys;
+	CDfa values[] = m_values;
+	int hashes[] = m_hashes;
+
+	m_keys = new CStateSet[keys.length * 2];
+	m_values = new CDfa[keys.length * 2];
+	m_hashes = new int[keys.length * 2];
+	for (int i = 0; i < keys.length; ++i)
+	  {
+	    if (null != keys[i])
+	      {
+		insert(keys[i], hashes[i], values[i]);
+	      }
+	  }
+      }
+
+  private void insert
+    (
+     CStateSet set,
+     int h,
+     CDfa dfa
+     )
+      {
+	int mask = m_keys.length - 1;
+	int i = slot(h, mask);
+	while (null != m_keys[i])
+	  {
+	    i = (i + 1) & mask;
+	  }
+	m_keys[i] = set;
+	m_values[i] = dfa;
+	m_hashes[i] = h;
+      }
+
+  private static int slot
+    (
+     int h,
+     int mask
+     )
+      {
+	return (h ^ (h >>> 16)) & mask;
+      }
+}
+
 /********************************************************
   Class: CNfa
   *******************************************************/
@@ -5217,6 +6205,12 @@ class CLexGen
     'a', 't', 'e',
     '\0'
     };
+
+  private char m_switch_dir[] = { 
+    '%', 's', 'w', 
+    'i', 't', 'c',
+    'h', '\0'
+    };
   
   private char m_char_dir[] = { 
     '%', 'c', 'h',
@@ -5236,6 +6230,12 @@ class CLexGen
     '\0'
     };
 
+  private char m_comb_dir[] = { 
+    '%', 'c', 'o',
+    'm', 'b',
+    '\0'
+    };
+
   private char m_class_dir[] = { 
     '%', 'c', 'l', 
     'a', 's', 's',
@@ -5260,6 +6260,14 @@ class CLexGen
     '\0'
     };
 
+  private char m_throughput_dir[] = { 
+    '%', 't', 'h',
+    'r', 'o', 'u',
+    'g', 'h', 'p',
+    'u', 't',
+    '\0'
+    };
+
   private char m_integer_dir[] = { 
     '%', 'i', 'n',
     't', 'e', 'g', 
@@ -5537,6 +6545,17 @@ class CLexGen
 			      "java_cup.runtime.Symbol".toCharArray();
 			  break;
 			}
+		      else if (0 == CUtility.charncmp(m_input.m_line,
+						      0,
+						      m_comb_dir,
+						      0,
+						      m_comb_dir.length - 1))
+			{
+			  /* Set compressed transition table to ON. */
+			  m_input.m_line_index = m_comb_dir.length;
+			  m_spec.m_comb = true;
+			  break;
+			}
 	      
 		      /* Bad directive. */
 		      CError.parse_error(CError.E_DIRECT,
@@ -5760,6 +6779,18 @@ class CLexGen
 			  break;
 			}
 
+		      if (0 == CUtility.charncmp(m_input.m_line,
+						 0,
+						 m_switch_dir,
+						 0,
+						 m_switch_dir.length - 1))
+			{
+			  /* Set direct-coded lexer to ON. */
+			  m_input.m_line_index = m_switch_dir.length;
+			  m_spec.m_switch_coded = true;
+			  break;
+			}
+
 		      /* Undefined directive. */
 		      CError.parse_error(CError.E_DIRECT,
 					 m_input.m_line_number);
@@ -5778,6 +6809,18 @@ class CLexGen
 			  break;
 			}
 
+		      if (0 == CUtility.charncmp(m_input.m_line,
+						 0,
+						 m_throughput_dir,
+						 0,
+						 m_throughput_dir.length - 1))
+			{
+			  /* Set throughput buffer mode to ON. */
+			  m_input.m_line_index = m_throughput_dir.length;
+			  m_spec.m_throughput = true;
+			  break;
+			}
+
 		      /* Undefined directive. */
 		      CError.parse_error(CError.E_DIRECT,
 					 m_input.m_line_number);
@@ -7571,6 +8614,26 @@ final class SparseBitSet implements Cloneable {
 	return 0 != ( bits[idx] & (1L << (bit & BITS_M1) ) );
     }
 
+    /**
+     * Returns the index of the first bit that is set at or after
+     * the given one, or -1 if there is none.
+     * @param from the bit to start looking at
+     */
+    public int nextSetBit(int from) {
+	int bnum = from >> LG_BITS;
+	int idx  = bsearch(bnum);
+	if (idx < size && offs[idx]==bnum) {
+	    long b = bits[idx] & (-1L << (from & BITS_M1));
+	    if (b != 0)
+		return (bnum << LG_BITS) + Long.numberOfTrailingZeros(b);
+	    idx++;
+	}
+	for (; idx < size; idx++)
+	    if (bits[idx] != 0)
+		return (offs[idx] << LG_BITS) + Long.numberOfTrailingZeros(bits[idx]);
+	return -1;
+    }
+
     /**
      * Logically ANDs this bit set with the specified set of bits.
      * @param set the bit set to be ANDed with